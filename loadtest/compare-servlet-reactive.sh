@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Runs devices-load.js against the servlet and the reactive API (same database) and prints, per
+# API, the JVM memory and live threads before and during the run and the memory per client.
+#
+#   docker compose --profile reactive up -d --build
+#   VUS=10000 loadtest/compare-servlet-reactive.sh
+#
+# At 10k clients the servlet side needs SERVER_TOMCAT_MAX_CONNECTIONS above VUS (default 8192);
+# the k6 host needs `ulimit -n` above VUS as well. Latency percentiles are in each k6 summary.
+set -euo pipefail
+
+SERVLET_URL=${SERVLET_URL:-http://localhost:8085}
+REACTIVE_URL=${REACTIVE_URL:-http://localhost:8086}
+VUS=${VUS:-10000}
+DURATION=${DURATION:-2m}
+DIR=$(cd "$(dirname "$0")" && pwd)
+
+metric() { # base url, metric name -> summed value
+  curl -sf "$1/actuator/metrics/$2" | sed -E 's/.*"statistic":"VALUE","value":([0-9.E+-]+).*/\1/'
+}
+
+sample() { # base url -> "memory_bytes threads"
+  echo "$(metric "$1" jvm.memory.used) $(metric "$1" jvm.threads.live)"
+}
+
+for api in servlet reactive; do
+  url=$SERVLET_URL
+  [ "$api" = reactive ] && url=$REACTIVE_URL
+  read -r mem0 threads0 <<<"$(sample "$url")"
+  k6 run -q -e BASE_URL="$url" -e VUS="$VUS" -e DURATION="$DURATION" \
+     --summary-export "/tmp/devices-$api.json" "$DIR/devices-load.js" &
+  k6pid=$!
+  # sample once every client is connected (after the 20s ramp-up)
+  sleep 40
+  read -r mem1 threads1 <<<"$(sample "$url")"
+  wait $k6pid
+  awk -v api="$api" -v m0="$mem0" -v m1="$mem1" -v t0="$threads0" -v t1="$threads1" -v vus="$VUS" 'BEGIN {
+    printf "%-8s memory %.0f MB -> %.0f MB (%.1f KB per client), threads %d -> %d\n",
+           api, m0 / 1048576, m1 / 1048576, (m1 - m0) / vus / 1024, t0, t1 }'
+  echo "         k6 summary: /tmp/devices-$api.json"
+done
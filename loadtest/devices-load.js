@@ -0,0 +1,60 @@
+// k6 load test for the device API.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=500 loadtest/devices-load.js
+//
+// Run it once per mode (VIRTUAL_THREADS=false / true on the app) against the same seeded
+// database and compare http_req_duration percentiles, http_reqs rate and the 503 share.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '500');
+const DURATION = __ENV.DURATION || '2m';
+const SEED = parseInt(__ENV.SEED || '1000');
+
+export const options = {
+  scenarios: {
+    burst: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '20s', target: VUS },
+        { duration: DURATION, target: VUS },
+        { duration: '10s', target: 0 },
+      ],
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const items = [];
+  for (let i = 0; i < SEED; i++) {
+    items.push({ name: `load-${i}`, brand: `brand-${i % 50}`, state: 'AVAILABLE' });
+  }
+  const res = http.post(`${BASE_URL}/api/devices/batch`, JSON.stringify(items), {
+    headers: { 'Content-Type': 'application/json' },
+  });
+  return { ids: res.json().map((r) => r.id).filter((id) => id) };
+}
+
+export default function (data) {
+  const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+  const roll = Math.random();
+  let res;
+  if (roll < 0.6) {
+    res = http.get(`${BASE_URL}/api/devices/${id}`, { tags: { name: 'getById' } });
+  } else if (roll < 0.8) {
+    res = http.get(`${BASE_URL}/api/devices/brand/brand-${Math.floor(Math.random() * 50)}?match=EXACT`, { tags: { name: 'byBrand' } });
+  } else if (roll < 0.9) {
+    res = http.get(`${BASE_URL}/api/devices/page?limit=50`, { tags: { name: 'page' } });
+  } else {
+    res = http.put(`${BASE_URL}/api/devices/${id}`, JSON.stringify({ name: `load-${roll}` }), {
+      headers: { 'Content-Type': 'application/json' },
+      tags: { name: 'update' },
+    });
+  }
+  check(res, {
+    'not 5xx other than 503': (r) => r.status < 500 || r.status === 503,
+  });
+}
@@ -0,0 +1,12 @@
+package com.example.devices.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class DevicesReactiveApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(DevicesReactiveApplication.class, args);
+    }
+}
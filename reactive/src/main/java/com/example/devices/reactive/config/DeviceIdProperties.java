@@ -0,0 +1,15 @@
+package com.example.devices.reactive.config;
+
+import com.example.devices.reactive.domain.UuidStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Device ids.
+ *
+ * @param strategy how the service generates ids for new devices
+ */
+@ConfigurationProperties(prefix = "devices.ids")
+public record DeviceIdProperties(
+        @DefaultValue("TIME_ORDERED") UuidStrategy strategy
+) {}
@@ -0,0 +1,70 @@
+package com.example.devices.reactive.config;
+
+import com.example.devices.reactive.domain.UuidStrategy;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The MySQL schema keeps ids in {@code binary(16)}, the way Hibernate writes them, and the MySQL
+ * R2DBC driver has no UUID codec; convert ids to and from their 16 big-endian bytes there.
+ * PostgreSQL has a native {@code uuid} type and needs nothing.
+ */
+@Configuration
+@EnableConfigurationProperties(DeviceIdProperties.class)
+public class R2dbcConfig {
+
+    @Bean
+    R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        R2dbcDialect dialect = DialectResolver.getDialect(connectionFactory);
+        List<Converter<?, ?>> converters = dialect instanceof MySqlDialect
+                ? List.of(new UuidToBytes(), new BytesToUuid(), new ByteBufferToUuid())
+                : List.of();
+        return R2dbcCustomConversions.of(dialect, converters);
+    }
+
+    @Bean
+    UuidStrategy deviceIdStrategy(DeviceIdProperties properties) {
+        return properties.strategy();
+    }
+
+    @WritingConverter
+    static class UuidToBytes implements Converter<UUID, byte[]> {
+        @Override
+        public byte[] convert(UUID id) {
+            return ByteBuffer.allocate(16)
+                    .putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .array();
+        }
+    }
+
+    @ReadingConverter
+    static class BytesToUuid implements Converter<byte[], UUID> {
+        @Override
+        public UUID convert(byte[] bytes) {
+            return new ByteBufferToUuid().convert(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    @ReadingConverter
+    static class ByteBufferToUuid implements Converter<ByteBuffer, UUID> {
+        @Override
+        public UUID convert(ByteBuffer bytes) {
+            ByteBuffer buffer = bytes.duplicate();
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+    }
+}
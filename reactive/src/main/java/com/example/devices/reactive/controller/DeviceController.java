@@ -0,0 +1,128 @@
+package com.example.devices.reactive.controller;
+
+import com.example.devices.reactive.domain.BrandMatch;
+import com.example.devices.reactive.domain.DeviceState;
+import com.example.devices.reactive.dto.BatchItemResult;
+import com.example.devices.reactive.dto.DevicePage;
+import com.example.devices.reactive.dto.DeviceRequest;
+import com.example.devices.reactive.dto.DeviceResponse;
+import com.example.devices.reactive.dto.DeviceUpdateRequest;
+import com.example.devices.reactive.exception.PreconditionFailedException;
+import com.example.devices.reactive.service.DeviceService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The servlet application's {@code /api/devices} contract. Lists are {@link Flux}es: the encoder
+ * writes each device as it arrives and only requests more rows once the client has taken the
+ * previous ones, so a slow reader holds neither a thread nor the whole result set.
+ */
+@RestController
+@RequestMapping("/api/devices")
+public class DeviceController {
+
+    private final DeviceService service;
+
+    public DeviceController(DeviceService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<DeviceResponse>> create(@Valid @RequestBody DeviceRequest request) {
+        return service.create(request).map(device -> ResponseEntity.status(HttpStatus.CREATED).body(device));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<BatchItemResult>>> createBatch(@RequestBody List<DeviceRequest> requests) {
+        return service.createAll(requests).map(ResponseEntity::ok);
+    }
+
+    /**
+     * The ETag is the device version; a matching {@code If-None-Match} is answered with 304.
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DeviceResponse>> getById(@PathVariable UUID id) {
+        return service.findById(id).map(device -> ResponseEntity.ok().eTag(etag(device)).body(device));
+    }
+
+    /**
+     * The full table as a JSON array, or one JSON document per line for
+     * {@code Accept: application/x-ndjson}.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<DeviceResponse> getAll() {
+        return service.findAll();
+    }
+
+    @GetMapping("/page")
+    public Mono<DevicePage> getPage(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        return service.findPage(limit, cursor);
+    }
+
+    @GetMapping("/brand/{brand}")
+    public Flux<DeviceResponse> getByBrand(
+            @PathVariable String brand,
+            @RequestParam(defaultValue = "CONTAINS") BrandMatch match
+    ) {
+        return service.findByBrand(brand, match);
+    }
+
+    @GetMapping("/state/{state}")
+    public Flux<DeviceResponse> getByState(@PathVariable DeviceState state) {
+        return service.findByState(state);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<DeviceResponse>> update(
+            @PathVariable UUID id,
+            @Valid @RequestBody DeviceUpdateRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        return Mono.defer(() -> service.update(id, request, expectedVersion(ifMatch)))
+                .map(device -> ResponseEntity.ok().eTag(etag(device)).body(device));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        return Mono.defer(() -> service.delete(id, expectedVersion(ifMatch)))
+                .then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+    }
+
+    private static String etag(DeviceResponse device) {
+        return "\"" + device.version() + "\"";
+    }
+
+    /**
+     * Version named by an {@code If-Match} header, or null when the header is absent or {@code *}.
+     * A tag that isn't one of our versions can never match.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the current version");
+        }
+    }
+}
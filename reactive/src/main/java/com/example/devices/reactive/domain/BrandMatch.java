@@ -0,0 +1,11 @@
+package com.example.devices.reactive.domain;
+
+/**
+ * How a brand search term is matched against the normalized brand. EXACT and PREFIX can always use
+ * the brand index; CONTAINS needs a trigram index (PostgreSQL) to avoid a full scan.
+ */
+public enum BrandMatch {
+    EXACT,
+    PREFIX,
+    CONTAINS
+}
@@ -0,0 +1,61 @@
+package com.example.devices.reactive.domain;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Row of the {@code devices} table created by the main application's migrations. R2DBC has no
+ * entity lifecycle callbacks: whoever sets {@link #brand} sets {@link #brandKey} too.
+ */
+@Table("devices")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Device {
+
+    /**
+     * Assigned before the insert; a null {@link #version} is what marks the row as new.
+     */
+    @Id
+    private UUID id;
+
+    private String name;
+
+    private String brand;
+
+    /**
+     * Lower-cased, trimmed copy of {@link #brand}; brand queries compare against this column.
+     */
+    @Column("brand_key")
+    private String brandKey;
+
+    private DeviceState state;
+
+    @Column("created_at")
+    private Instant createdAt;
+
+    @Version
+    private Long version;
+
+    public static String normalizeBrand(String brand) {
+        return brand == null ? null : brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Current time at the precision the database keeps, so keyset cursors built from a freshly
+     * saved row compare equal to the stored one.
+     */
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.devices.reactive.domain;
+
+public enum DeviceState {
+    AVAILABLE,
+    IN_USE,
+    INACTIVE
+}
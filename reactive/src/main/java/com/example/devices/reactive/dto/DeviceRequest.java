@@ -0,0 +1,11 @@
+package com.example.devices.reactive.dto;
+
+import com.example.devices.reactive.domain.DeviceState;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public record DeviceRequest(
+        @NotBlank String name,
+        @NotBlank String brand,
+        @NotNull DeviceState state
+) {}
@@ -0,0 +1,14 @@
+package com.example.devices.reactive.dto;
+
+import com.example.devices.reactive.domain.DeviceState;
+import java.time.Instant;
+import java.util.UUID;
+
+public record DeviceResponse(
+        UUID id,
+        String name,
+        String brand,
+        DeviceState state,
+        Instant createdAt,
+        Long version
+) {}
@@ -0,0 +1,9 @@
+package com.example.devices.reactive.dto;
+
+import com.example.devices.reactive.domain.DeviceState;
+
+public record DeviceUpdateRequest(
+        String name,
+        String brand,
+        DeviceState state
+) {}
@@ -0,0 +1,68 @@
+package com.example.devices.reactive.exception;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<ApiError> handleNotFound(NotFoundException ex, ServerWebExchange exchange) {
+        return error(ex, HttpStatus.NOT_FOUND, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiError> handleBadRequest(BadRequestException ex, ServerWebExchange exchange) {
+        return error(ex, HttpStatus.BAD_REQUEST, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiError> handlePreconditionFailed(PreconditionFailedException ex, ServerWebExchange exchange) {
+        return error(ex, HttpStatus.PRECONDITION_FAILED, ex.getMessage(), exchange);
+    }
+
+    // Another writer committed between our read and our write.
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleOptimisticLock(OptimisticLockingFailureException ex, ServerWebExchange exchange) {
+        return error(ex, HttpStatus.PRECONDITION_FAILED, "Device was modified concurrently, reload and retry", exchange);
+    }
+
+    // Request binding and validation failures (bad enum, malformed body, @Valid violations).
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ApiError> handleResponseStatus(ResponseStatusException ex, ServerWebExchange exchange) {
+        return error(ex, ex.getStatusCode(), ex.getReason(), exchange);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ApiError> handleGeneric(Exception ex, ServerWebExchange exchange) {
+        return error(ex, HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage(), exchange);
+    }
+
+    private ResponseEntity<ApiError> error(Exception ex, HttpStatusCode status, String message, ServerWebExchange exchange) {
+        HttpStatus resolved = HttpStatus.valueOf(status.value());
+        ApiError error = ApiError.of(
+                resolved.value(),
+                resolved.getReasonPhrase(),
+                message,
+                "uri=" + exchange.getRequest().getPath().value()
+        );
+        meterRegistry.counter("devices.api.errors",
+                "exception", ex.getClass().getSimpleName(),
+                "status", String.valueOf(resolved.value())
+        ).increment();
+        return ResponseEntity.status(resolved).body(error);
+    }
+}
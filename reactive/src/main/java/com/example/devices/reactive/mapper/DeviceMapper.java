@@ -0,0 +1,32 @@
+package com.example.devices.reactive.mapper;
+
+import com.example.devices.reactive.domain.Device;
+import com.example.devices.reactive.dto.DeviceRequest;
+import com.example.devices.reactive.dto.DeviceResponse;
+
+import java.util.UUID;
+
+public class DeviceMapper {
+
+    public static Device toEntity(UUID id, DeviceRequest request) {
+        return Device.builder()
+                .id(id)
+                .name(request.name())
+                .brand(request.brand())
+                .brandKey(Device.normalizeBrand(request.brand()))
+                .state(request.state())
+                .createdAt(Device.now())
+                .build();
+    }
+
+    public static DeviceResponse toResponse(Device device) {
+        return new DeviceResponse(
+                device.getId(),
+                device.getName(),
+                device.getBrand(),
+                device.getState(),
+                device.getCreatedAt(),
+                device.getVersion()
+        );
+    }
+}
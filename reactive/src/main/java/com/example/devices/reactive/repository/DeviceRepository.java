@@ -0,0 +1,73 @@
+package com.example.devices.reactive.repository;
+
+import com.example.devices.reactive.domain.Device;
+import com.example.devices.reactive.domain.DeviceState;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Same queries as the JPA repository of the servlet application, in SQL both PostgreSQL and MySQL
+ * accept. Results are emitted as rows arrive, at the pace the subscriber requests them.
+ */
+public interface DeviceRepository extends ReactiveCrudRepository<Device, UUID> {
+
+    // Brand lookups on the normalized column; callers pass an already normalized term.
+    Flux<Device> findByBrandKeyOrderByCreatedAtAscIdAsc(String brandKey);
+    Flux<Device> findByBrandKeyStartingWithOrderByCreatedAtAscIdAsc(String prefix);
+    Flux<Device> findByBrandKeyContainingOrderByCreatedAtAscIdAsc(String fragment);
+
+    Flux<Device> findByStateOrderByCreatedAtAscIdAsc(DeviceState state);
+
+    @Query("SELECT * FROM devices ORDER BY created_at, id")
+    Flux<Device> streamAll();
+
+    @Query("SELECT * FROM devices ORDER BY created_at, id LIMIT :limit")
+    Flux<Device> findFirstPage(int limit);
+
+    @Query("""
+            SELECT * FROM devices
+            WHERE created_at > :createdAt OR (created_at = :createdAt AND id > :id)
+            ORDER BY created_at, id
+            LIMIT :limit
+            """)
+    Flux<Device> findPageAfter(Instant createdAt, UUID id, int limit);
+
+    /**
+     * Applies the non-null fields and bumps the version in one statement. With {@code guardInUse}
+     * the row is skipped while it is IN_USE; with a {@code version}, unless it is still at that
+     * version. Emits the number of rows changed, 0 or 1.
+     */
+    @Modifying
+    @Query("""
+            UPDATE devices
+            SET name = COALESCE(:name, name),
+                brand = COALESCE(:brand, brand),
+                brand_key = COALESCE(:brandKey, brand_key),
+                state = COALESCE(:state, state),
+                version = version + 1
+            WHERE id = :id
+              AND (:guardInUse = FALSE OR state <> 'IN_USE')
+              AND (:version IS NULL OR version = :version)
+            """)
+    Mono<Integer> updateGuarded(UUID id, String name, String brand, String brandKey, String state,
+                                boolean guardInUse, Long version);
+
+    /**
+     * Deletes the device unless it is IN_USE or, with a {@code version}, no longer at that version.
+     * Emits the number of rows deleted, 0 or 1.
+     */
+    @Modifying
+    @Query("""
+            DELETE FROM devices
+            WHERE id = :id
+              AND state <> 'IN_USE'
+              AND (:version IS NULL OR version = :version)
+            """)
+    Mono<Integer> deleteGuarded(UUID id, Long version);
+}
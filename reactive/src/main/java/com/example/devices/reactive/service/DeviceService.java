@@ -0,0 +1,217 @@
+package com.example.devices.reactive.service;
+
+import com.example.devices.reactive.domain.BrandMatch;
+import com.example.devices.reactive.domain.Device;
+import com.example.devices.reactive.domain.DeviceState;
+import com.example.devices.reactive.domain.UuidStrategy;
+import com.example.devices.reactive.dto.BatchItemResult;
+import com.example.devices.reactive.dto.DevicePage;
+import com.example.devices.reactive.dto.DeviceRequest;
+import com.example.devices.reactive.dto.DeviceResponse;
+import com.example.devices.reactive.dto.DeviceUpdateRequest;
+import com.example.devices.reactive.exception.BadRequestException;
+import com.example.devices.reactive.exception.NotFoundException;
+import com.example.devices.reactive.exception.PreconditionFailedException;
+import com.example.devices.reactive.mapper.DeviceMapper;
+import com.example.devices.reactive.repository.DeviceRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The servlet application's {@code DeviceService} rules on R2DBC: IN_USE devices keep their name
+ * and brand and can't be deleted, and {@code If-Match} versions are checked inside the same
+ * guarded statement. Reads run without a transaction, so a streamed list never pins a connection
+ * to a transaction for as long as the client takes to read it.
+ */
+@Service
+public class DeviceService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final DeviceRepository repository;
+    private final Validator validator;
+    private final UuidStrategy ids;
+
+    public DeviceService(DeviceRepository repository, Validator validator, UuidStrategy ids) {
+        this.repository = repository;
+        this.validator = validator;
+        this.ids = ids;
+    }
+
+    public Mono<DeviceResponse> create(DeviceRequest request) {
+        return repository.save(DeviceMapper.toEntity(ids.next(), request))
+                .map(DeviceMapper::toResponse);
+    }
+
+    public Mono<DeviceResponse> findById(UUID id) {
+        return load(id).map(DeviceMapper::toResponse);
+    }
+
+    /**
+     * Every device in (createdAt, id) order, read from the database as the subscriber demands them.
+     */
+    public Flux<DeviceResponse> findAll() {
+        return repository.streamAll().map(DeviceMapper::toResponse);
+    }
+
+    public Mono<DevicePage> findPage(int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return Mono.defer(() -> {
+                    if (cursor == null) {
+                        return repository.findFirstPage(limit).collectList();
+                    }
+                    DeviceCursor after = DeviceCursor.decode(cursor);
+                    return repository.findPageAfter(after.createdAt(), after.id(), limit).collectList();
+                })
+                .map(devices -> {
+                    String nextCursor = null;
+                    if (devices.size() == limit) {
+                        Device last = devices.get(devices.size() - 1);
+                        nextCursor = new DeviceCursor(last.getCreatedAt(), last.getId()).encode();
+                    }
+                    return new DevicePage(devices.stream().map(DeviceMapper::toResponse).toList(), nextCursor);
+                });
+    }
+
+    public Flux<DeviceResponse> findByBrand(String brand, BrandMatch match) {
+        String key = Device.normalizeBrand(brand);
+        Flux<Device> devices = switch (match) {
+            case EXACT -> repository.findByBrandKeyOrderByCreatedAtAscIdAsc(key);
+            case PREFIX -> repository.findByBrandKeyStartingWithOrderByCreatedAtAscIdAsc(key);
+            case CONTAINS -> repository.findByBrandKeyContainingOrderByCreatedAtAscIdAsc(key);
+        };
+        return devices.map(DeviceMapper::toResponse);
+    }
+
+    public Flux<DeviceResponse> findByState(DeviceState state) {
+        return repository.findByStateOrderByCreatedAtAscIdAsc(state).map(DeviceMapper::toResponse);
+    }
+
+    /**
+     * Updates the device only if it is still at {@code expectedVersion} (any version when null).
+     * Only when the guarded UPDATE matches nothing is the device loaded to tell "not found",
+     * "stale" and "in use" apart.
+     */
+    @Transactional
+    public Mono<DeviceResponse> update(UUID id, DeviceUpdateRequest request, Long expectedVersion) {
+        boolean changesIdentity = request.name() != null || request.brand() != null;
+        String state = request.state() == null ? null : request.state().name();
+        return repository.updateGuarded(id, request.name(), request.brand(), Device.normalizeBrand(request.brand()),
+                        state, changesIdentity, expectedVersion)
+                .flatMap(updated -> updated == 0
+                        ? load(id).flatMap(device -> {
+                            checkVersion(device, expectedVersion);
+                            checkUpdatable(device, request);
+                            return Mono.error(concurrentlyModified(id));
+                        })
+                        : findById(id));
+    }
+
+    /**
+     * Deletes with one guarded DELETE; see {@link #update(UUID, DeviceUpdateRequest, Long)}.
+     */
+    @Transactional
+    public Mono<Void> delete(UUID id, Long expectedVersion) {
+        return repository.deleteGuarded(id, expectedVersion)
+                .flatMap(deleted -> deleted == 0
+                        ? load(id).flatMap(device -> {
+                            checkVersion(device, expectedVersion);
+                            checkDeletable(device);
+                            return Mono.<Void>error(concurrentlyModified(id));
+                        })
+                        : Mono.<Void>empty());
+    }
+
+    /**
+     * Creates every valid element in one transaction. Invalid elements are reported and skipped;
+     * they don't fail the rest of the batch.
+     */
+    @Transactional
+    public Mono<List<BatchItemResult>> createAll(List<DeviceRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            return Mono.error(new BadRequestException("Batch must contain between 1 and " + MAX_BATCH_SIZE + " items"));
+        }
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        List<Integer> indexes = new ArrayList<>(requests.size());
+        List<Device> devices = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            String violations = validate(requests.get(i));
+            if (violations != null) {
+                results[i] = BatchItemResult.failure(i, null, HttpStatus.BAD_REQUEST.value(), violations);
+                continue;
+            }
+            indexes.add(i);
+            devices.add(DeviceMapper.toEntity(ids.next(), requests.get(i)));
+        }
+
+        return repository.saveAll(devices)
+                .index()
+                .doOnNext(saved -> {
+                    int index = indexes.get(saved.getT1().intValue());
+                    results[index] = BatchItemResult.success(index, HttpStatus.CREATED.value(),
+                            DeviceMapper.toResponse(saved.getT2()));
+                })
+                .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
+
+    private Mono<Device> load(UUID id) {
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Device not found: " + id)));
+    }
+
+    private static void checkVersion(Device device, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(device.getVersion())) {
+            throw new PreconditionFailedException("Device " + device.getId() + " is at version "
+                    + device.getVersion() + ", not " + expectedVersion);
+        }
+    }
+
+    private static void checkUpdatable(Device device, DeviceUpdateRequest request) {
+        if (device.getState() == DeviceState.IN_USE) {
+            if (request.name() != null || request.brand() != null) {
+                throw new BadRequestException("Cannot update name or brand of a device in use.");
+            }
+        }
+    }
+
+    private static void checkDeletable(Device device) {
+        if (device.getState() == DeviceState.IN_USE) {
+            throw new BadRequestException("Cannot delete a device that is in use.");
+        }
+    }
+
+    // The guard rejected a row that passes every check now: it changed in between.
+    private static PreconditionFailedException concurrentlyModified(UUID id) {
+        return new PreconditionFailedException("Device " + id + " was modified concurrently, reload and retry");
+    }
+
+    private String validate(Object item) {
+        if (item == null) {
+            return "item must not be null";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.devices.reactive;
+
+import com.example.devices.reactive.controller.DeviceController;
+import com.example.devices.reactive.domain.DeviceState;
+import com.example.devices.reactive.dto.DeviceResponse;
+import com.example.devices.reactive.dto.DeviceUpdateRequest;
+import com.example.devices.reactive.exception.NotFoundException;
+import com.example.devices.reactive.service.DeviceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+
+@WebFluxTest(controllers = DeviceController.class)
+@Import(SimpleMeterRegistry.class)
+class DeviceControllerTest {
+
+    @Autowired
+    WebTestClient client;
+
+    @MockBean
+    DeviceService service;
+
+    @Test
+    void getById_returnsDeviceWithETag_and304WhenUnchanged() {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.findById(id)).thenReturn(Mono.just(device(id, DeviceState.IN_USE, 3L)));
+
+        client.get().uri("/api/devices/{id}", id).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().jsonPath("$.name").isEqualTo("MBP");
+        client.get().uri("/api/devices/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"3\"").exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void getById_notFound_returns404() {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.findById(id)).thenReturn(Mono.error(new NotFoundException("Device not found: " + id)));
+
+        client.get().uri("/api/devices/{id}", id).exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Device not found: " + id);
+    }
+
+    @Test
+    void getAll_streamsJsonArrayOrNdjson() {
+        Mockito.when(service.findAll()).thenAnswer(inv -> Flux.just(
+                device(UUID.randomUUID(), DeviceState.AVAILABLE, 0L),
+                device(UUID.randomUUID(), DeviceState.IN_USE, 0L)));
+
+        client.get().uri("/api/devices").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+        client.get().uri("/api/devices").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(DeviceResponse.class).hasSize(2);
+    }
+
+    @Test
+    void create_invalidBody_returns400() {
+        client.post().uri("/api/devices").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "", "brand", "Apple", "state", "AVAILABLE"))
+                .exchange()
+                .expectStatus().isBadRequest();
+        Mockito.verifyNoInteractions(service);
+    }
+
+    @Test
+    void update_ifMatch_passesExpectedVersion_andStaleTagIs412() {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.update(eq(id), any(DeviceUpdateRequest.class), eq(4L)))
+                .thenReturn(Mono.just(device(id, DeviceState.INACTIVE, 5L)));
+
+        client.put().uri("/api/devices/{id}", id).header(HttpHeaders.IF_MATCH, "\"4\"")
+                .bodyValue(Map.of("state", "INACTIVE"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5\"");
+        client.put().uri("/api/devices/{id}", id).header(HttpHeaders.IF_MATCH, "\"abc\"")
+                .bodyValue(Map.of("state", "INACTIVE"))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void delete_returns204() {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.delete(id, null)).thenReturn(Mono.empty());
+
+        client.delete().uri("/api/devices/{id}", id).exchange().expectStatus().isNoContent();
+    }
+
+    private static DeviceResponse device(UUID id, DeviceState state, Long version) {
+        return new DeviceResponse(id, "MBP", "Apple", state, Instant.parse("2025-08-16T10:00:00Z"), version);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.devices.reactive;
+
+import com.example.devices.reactive.domain.BrandMatch;
+import com.example.devices.reactive.domain.Device;
+import com.example.devices.reactive.domain.DeviceState;
+import com.example.devices.reactive.domain.UuidStrategy;
+import com.example.devices.reactive.dto.DeviceRequest;
+import com.example.devices.reactive.dto.DeviceUpdateRequest;
+import com.example.devices.reactive.exception.BadRequestException;
+import com.example.devices.reactive.exception.NotFoundException;
+import com.example.devices.reactive.exception.PreconditionFailedException;
+import com.example.devices.reactive.repository.DeviceRepository;
+import com.example.devices.reactive.service.DeviceService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DeviceServiceTest {
+
+    DeviceRepository repo;
+    DeviceService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(DeviceRepository.class);
+        service = new DeviceService(repo, Validation.buildDefaultValidatorFactory().getValidator(), UuidStrategy.TIME_ORDERED);
+    }
+
+    @Test
+    void create_assignsIdAndNormalizedBrand() {
+        when(repo.save(any(Device.class))).thenAnswer(inv -> {
+            Device device = inv.getArgument(0);
+            device.setVersion(0L);
+            return Mono.just(device);
+        });
+
+        StepVerifier.create(service.create(new DeviceRequest("MBP", " Apple ", DeviceState.AVAILABLE)))
+                .assertNext(created -> {
+                    assertThat(created.id().version()).isEqualTo(7);
+                    assertThat(created.version()).isZero();
+                })
+                .verifyComplete();
+        verify(repo).save(argThat(device -> device.getBrandKey().equals("apple") && device.getCreatedAt() != null));
+    }
+
+    @Test
+    void findByBrand_normalizesTermAndStreamsMatches() {
+        Device a = device(DeviceState.AVAILABLE, 0L);
+        Device b = device(DeviceState.IN_USE, 0L);
+        when(repo.findByBrandKeyStartingWithOrderByCreatedAtAscIdAsc("app")).thenReturn(Flux.just(a, b));
+
+        StepVerifier.create(service.findByBrand(" APP", BrandMatch.PREFIX), 1)
+                .expectNextMatches(device -> device.id().equals(a.getId()))
+                .thenRequest(1)
+                .expectNextMatches(device -> device.id().equals(b.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void update_inUseNameChange_isRejected() {
+        Device inUse = device(DeviceState.IN_USE, 2L);
+        when(repo.updateGuarded(eq(inUse.getId()), eq("New"), isNull(), isNull(), isNull(), eq(true), isNull()))
+                .thenReturn(Mono.just(0));
+        when(repo.findById(inUse.getId())).thenReturn(Mono.just(inUse));
+
+        StepVerifier.create(service.update(inUse.getId(), new DeviceUpdateRequest("New", null, null), null))
+                .expectError(BadRequestException.class)
+                .verify();
+    }
+
+    @Test
+    void update_staleVersion_isRejected() {
+        Device device = device(DeviceState.AVAILABLE, 3L);
+        when(repo.updateGuarded(eq(device.getId()), isNull(), isNull(), isNull(), eq("INACTIVE"), eq(false), eq(2L)))
+                .thenReturn(Mono.just(0));
+        when(repo.findById(device.getId())).thenReturn(Mono.just(device));
+
+        StepVerifier.create(service.update(device.getId(), new DeviceUpdateRequest(null, null, DeviceState.INACTIVE), 2L))
+                .expectError(PreconditionFailedException.class)
+                .verify();
+    }
+
+    @Test
+    void update_applied_returnsReloadedDevice() {
+        Device device = device(DeviceState.INACTIVE, 1L);
+        when(repo.updateGuarded(eq(device.getId()), any(), any(), any(), eq("INACTIVE"), eq(false), isNull()))
+                .thenReturn(Mono.just(1));
+        when(repo.findById(device.getId())).thenReturn(Mono.just(device));
+
+        StepVerifier.create(service.update(device.getId(), new DeviceUpdateRequest(null, null, DeviceState.INACTIVE), null))
+                .assertNext(updated -> assertThat(updated.version()).isEqualTo(1L))
+                .verifyComplete();
+    }
+
+    @Test
+    void delete_inUse_isRejected_andMissing_isNotFound() {
+        Device inUse = device(DeviceState.IN_USE, 0L);
+        UUID missing = UUID.randomUUID();
+        when(repo.deleteGuarded(any(), isNull())).thenReturn(Mono.just(0));
+        when(repo.findById(inUse.getId())).thenReturn(Mono.just(inUse));
+        when(repo.findById(missing)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.delete(inUse.getId(), null)).expectError(BadRequestException.class).verify();
+        StepVerifier.create(service.delete(missing, null)).expectError(NotFoundException.class).verify();
+    }
+
+    @Test
+    void createAll_reportsInvalidItemsAndSavesTheRest() {
+        when(repo.saveAll(anyList())).thenAnswer(inv -> Flux.fromIterable(inv.<List<Device>>getArgument(0)));
+
+        StepVerifier.create(service.createAll(List.of(
+                        new DeviceRequest("", "Apple", DeviceState.AVAILABLE),
+                        new DeviceRequest("X1", "Lenovo", DeviceState.AVAILABLE))))
+                .assertNext(results -> {
+                    assertThat(results.get(0).status()).isEqualTo(400);
+                    assertThat(results.get(1).status()).isEqualTo(201);
+                    assertThat(results.get(1).device().brand()).isEqualTo("Lenovo");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_invalidLimitOrCursor_isBadRequest() {
+        StepVerifier.create(service.findPage(0, null)).expectError(BadRequestException.class).verify();
+        StepVerifier.create(service.findPage(10, "not-a-cursor")).expectError(BadRequestException.class).verify();
+        verifyNoInteractions(repo);
+    }
+
+    private static Device device(DeviceState state, Long version) {
+        return new Device(UUID.randomUUID(), "MBP", "Apple", "apple", state, Instant.now(), version);
+    }
+}
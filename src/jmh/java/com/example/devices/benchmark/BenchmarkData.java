@@ -0,0 +1,46 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.mapper.DeviceMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic device fixtures shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] BRANDS = {"Apple", "Lenovo", "Dell", "Samsung", "Google", "Microsoft", "HP", "Asus"};
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private BenchmarkData() {
+    }
+
+    static List<Device> devices(int count) {
+        Random random = new Random(42);
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        List<Device> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            devices.add(Device.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .name(brand + " device " + i)
+                    .brand(brand)
+                    .brandKey(Device.normalizeBrand(brand))
+                    .state(STATES[random.nextInt(STATES.length)])
+                    .createdAt(base.plusMillis(i * 1_000L + random.nextInt(1_000)))
+                    .build());
+        }
+        return devices;
+    }
+
+    static List<DeviceResponse> responses(int count) {
+        return devices(count).stream().map(DeviceMapper::toResponse).toList();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.controller.CompactCborHttpMessageConverter;
+import com.example.devices.dto.DeviceResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * List responses as JSON vs. the compact CBOR encoding, each plain and gzipped the way Tomcat
+ * compresses them. Payload sizes are printed once per trial, before the first warmup iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceEncodingBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectWriter listWriter;
+    private List<DeviceResponse> devices;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper mapper = format.equals("cbor") ? CompactCborHttpMessageConverter.compactMapper(builder) : builder.build();
+        listWriter = mapper.writerFor(new TypeReference<List<DeviceResponse>>() {});
+        devices = BenchmarkData.responses(size);
+        System.out.printf("%n%s, %d devices: %d bytes, %d gzipped%n", format, size, encode().length, encodeGzip().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return listWriter.writeValueAsBytes(devices);
+    }
+
+    @Benchmark
+    public byte[] encodeGzip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            listWriter.writeValue(gzip, devices);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.dto.DeviceResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding cost of list responses, with the same mapper settings Spring Boot applies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceJsonBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectWriter listWriter;
+    private List<DeviceResponse> devices;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        listWriter = mapper.writerFor(new TypeReference<List<DeviceResponse>>() {});
+        devices = BenchmarkData.responses(size);
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws Exception {
+        return listWriter.writeValueAsBytes(devices);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceRequest;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.mapper.DeviceMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the entity/DTO mapping done on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceMapperBenchmark {
+
+    private Device device;
+    private DeviceRequest request;
+    private List<Device> page;
+
+    @Setup
+    public void setUp() {
+        device = BenchmarkData.devices(1).get(0);
+        request = new DeviceRequest("iPhone 15", "Apple", DeviceState.AVAILABLE);
+        page = BenchmarkData.devices(1_000);
+    }
+
+    @Benchmark
+    public DeviceResponse toResponse() {
+        return DeviceMapper.toResponse(device);
+    }
+
+    @Benchmark
+    public Device toEntity() {
+        return DeviceMapper.toEntity(request);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1_000)
+    public void toResponseList(Blackhole blackhole) {
+        blackhole.consume(page.stream().map(DeviceMapper::toResponse).toList());
+    }
+}
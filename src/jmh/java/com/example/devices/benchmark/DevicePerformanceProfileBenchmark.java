@@ -0,0 +1,93 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.DevicesApiApplication;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.BatchItemResult;
+import com.example.devices.dto.DevicePage;
+import com.example.devices.dto.DeviceRequest;
+import com.example.devices.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default settings vs. the {@code performance} profile against a real database: the Docker Compose
+ * PostgreSQL ({@code docker compose up -d db}) or MySQL ({@code docker compose -f
+ * docker-compose-mysql.yml up -d mysql}), on the ports the vendor configuration points at.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="DevicePerformanceProfile -p vendor=postgresql"
+ * </pre>
+ * Only rows created here (brand {@value #BRAND}) are deleted afterwards. SQL logging is paid for but
+ * written to a discarding stream, so the default numbers leave out terminal and log shipping costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DevicePerformanceProfileBenchmark {
+
+    private static final String BRAND = "jmh-profile-benchmark";
+
+    @Param({"postgresql", "mysql"})
+    public String vendor;
+
+    @Param({"false", "true"})
+    public boolean performance;
+
+    @Param({"500"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private DeviceService service;
+    private List<DeviceRequest> batch;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> profiles = new ArrayList<>();
+        if (vendor.equals("postgresql")) {
+            profiles.add("postgresql");
+        }
+        if (performance) {
+            profiles.add("performance");
+        }
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        context = new SpringApplicationBuilder(DevicesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profiles.toArray(String[]::new))
+                .run("--logging.level.root=WARN");
+        service = context.getBean(DeviceService.class);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new DeviceRequest("device " + i, BRAND, DeviceState.values()[i % 3]));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).update("delete from devices where brand_key = ?", BRAND);
+        context.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<BatchItemResult> createBatch() {
+        return service.createAll(batch);
+    }
+
+    @Benchmark
+    public DevicePage firstPage() {
+        return service.findPage(100, null);
+    }
+}
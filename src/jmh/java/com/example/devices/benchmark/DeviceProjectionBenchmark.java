@@ -0,0 +1,94 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.DevicesApiApplication;
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.mapper.DeviceMapper;
+import com.example.devices.repository.DeviceRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same state query loaded as managed entities and mapped, versus projected straight into
+ * {@link DeviceResponse}. Run with {@code -prof gc}: {@code gc.alloc.rate.norm} divided by the
+ * {@code matchingRows} printed at setup gives bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceProjectionBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private DeviceRepository repository;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DevicesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.flyway.enabled=false",
+                        "--logging.level.root=WARN");
+        repository = context.getBean(DeviceRepository.class);
+        repository.saveAll(BenchmarkData.devices(rows).stream()
+                .peek(device -> device.setId(null))
+                .toList());
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        System.out.println("matchingRows=" + repository.findByState(DeviceState.INACTIVE, Device.class).size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * What the list endpoints did before: managed entities in a read-write transaction, then mapped.
+     */
+    @Benchmark
+    public List<DeviceResponse> entitiesReadWrite() {
+        return readWrite.execute(status -> repository.findByState(DeviceState.INACTIVE, Device.class).stream()
+                .map(DeviceMapper::toResponse)
+                .toList());
+    }
+
+    @Benchmark
+    public List<DeviceResponse> entitiesReadOnly() {
+        return readOnly.execute(status -> repository.findByState(DeviceState.INACTIVE, Device.class).stream()
+                .map(DeviceMapper::toResponse)
+                .toList());
+    }
+
+    @Benchmark
+    public List<DeviceResponse> projection() {
+        return readOnly.execute(status -> repository.findByState(DeviceState.INACTIVE, DeviceResponse.class));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.devices.benchmark;
+
+import com.example.devices.DevicesApiApplication;
+import com.example.devices.config.CacheConfig;
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DevicePage;
+import com.example.devices.dto.DeviceRequest;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end service calls (transaction, repository, mapping) against an embedded H2 database.
+ * Numbers are only comparable with each other, not with PostgreSQL or MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceServiceBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private DeviceService service;
+    private Cache cache;
+    private UUID knownId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DevicesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                // command-line arguments, so application.yml and the environment cannot override them
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:devices;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.flyway.enabled=false",
+                        "--logging.level.root=WARN");
+        DeviceRepository repository = context.getBean(DeviceRepository.class);
+        List<Device> seeded = repository.saveAll(BenchmarkData.devices(rows).stream()
+                .peek(device -> device.setId(null))
+                .toList());
+        knownId = seeded.get(seeded.size() / 2).getId();
+        service = context.getBean(DeviceService.class);
+        cache = context.getBean(CacheManager.class).getCache(CacheConfig.DEVICES_CACHE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // evicted first, so every call takes the transaction and repository path
+    @Benchmark
+    public DeviceResponse findById() {
+        cache.evict(knownId);
+        return service.findById(knownId);
+    }
+
+    @Benchmark
+    public DeviceResponse findByIdCached() {
+        return service.findById(knownId);
+    }
+
+    @Benchmark
+    public List<DeviceResponse> findByState() {
+        return service.findByState(DeviceState.INACTIVE);
+    }
+
+    @Benchmark
+    public List<DeviceResponse> findByBrand() {
+        return service.findByBrand("len");
+    }
+
+    @Benchmark
+    public DevicePage firstPage() {
+        return service.findPage(100, null);
+    }
+
+    @Benchmark
+    public DeviceResponse create() {
+        return service.create(new DeviceRequest("Pixel 9", "Google", DeviceState.AVAILABLE));
+    }
+}
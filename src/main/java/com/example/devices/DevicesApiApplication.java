@@ -1,11 +1,17 @@
 package com.example.devices;
 
+import com.example.devices.config.StartupTimingListener;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class DevicesApiApplication {
     public static void main(String[] args) {
-        SpringApplication.run(DevicesApiApplication.class, args);
+        SpringApplication app = new SpringApplication(DevicesApiApplication.class);
+        // keep startup steps so StartupTimingListener can report the slow ones
+        app.setApplicationStartup(new BufferingApplicationStartup(4096));
+        app.addListeners(new StartupTimingListener());
+        app.run(args);
     }
 }
@@ -0,0 +1,99 @@
+package com.example.devices.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Applies evictions and clears after the surrounding transaction commits, but puts right away.
+ * <p>
+ * Deferring a read's put to its commit would let it land after a concurrent write's eviction and
+ * bring the old value back. Puts made now can still race with an eviction, so each one is checked
+ * against the evictions applied since the miss that preceded it: if the key was evicted in
+ * between, the value may predate the change and is dropped again. Evictions are counted per
+ * stripe of keys, so writes to other keys rarely cost a read its put.
+ */
+public class EvictAfterCommitCache extends TransactionAwareCacheDecorator {
+
+    private static final int STRIPES = 64;
+
+    private final AtomicLongArray evictions = new AtomicLongArray(STRIPES);
+    private final ThreadLocal<Miss> lastMiss = new ThreadLocal<>();
+
+    public EvictAfterCommitCache(Cache targetCache) {
+        super(targetCache);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Miss miss = new Miss(key, evictions.get(stripe(key)));
+        ValueWrapper value = getTargetCache().get(key);
+        lastMiss.set(value == null ? miss : null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        Miss miss = new Miss(key, evictions.get(stripe(key)));
+        T value = getTargetCache().get(key, type);
+        lastMiss.set(value == null ? miss : null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return getTargetCache().get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Miss miss = lastMiss.get();
+        lastMiss.remove();
+        getTargetCache().put(key, value);
+        if (miss != null && miss.key().equals(key) && evictions.get(stripe(key)) != miss.evictions()) {
+            getTargetCache().evict(key);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        afterCommit(() -> {
+            // counted before the entry goes, so a put racing with it sees the count or loses its value
+            evictions.incrementAndGet(stripe(key));
+            getTargetCache().evict(key);
+        });
+    }
+
+    @Override
+    public void clear() {
+        afterCommit(() -> {
+            for (int i = 0; i < STRIPES; i++) {
+                evictions.incrementAndGet(i);
+            }
+            getTargetCache().clear();
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    private record Miss(Object key, long evictions) {}
+}
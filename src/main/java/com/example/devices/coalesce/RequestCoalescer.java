@@ -0,0 +1,112 @@
+package com.example.devices.coalesce;
+
+import com.example.devices.event.DeviceChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for {@link Coalesced} methods: the first call for a method and argument list runs
+ * it, calls with equal arguments arriving meanwhile wait for that call and get the same result or
+ * exception. The next call after it returns runs the method again.
+ * <p>
+ * A call only joins one that started in the same write generation. Every committed device change
+ * starts a new one, so a caller arriving after a commit never gets the result of a query that
+ * may have run before it; changes this instance doesn't publish are not tracked.
+ * <p>
+ * Callers already inside a transaction run the method themselves; they may need to see their
+ * own uncommitted writes. So do calls made through {@link #uncoalesced(Supplier)}.
+ */
+public class RequestCoalescer implements MethodInterceptor {
+
+    private static final ThreadLocal<Boolean> BYPASS = new ThreadLocal<>();
+
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RequestCoalescer(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code call} with coalescing off on this thread, for callers that must not be handed
+     * the result of a call that started before they did.
+     */
+    public static <T> T uncoalesced(Supplier<T> call) {
+        if (BYPASS.get() != null) {
+            return call.get();
+        }
+        BYPASS.set(Boolean.TRUE);
+        try {
+            return call.get();
+        } finally {
+            BYPASS.remove();
+        }
+    }
+
+    // after the snapshot has applied the change, so a call of the new generation sees it
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (BYPASS.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+        Key key = new Key(invocation.getMethod(), Arrays.asList(invocation.getArguments()), generation.get());
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            count(key.method());
+            return await(running);
+        }
+        try {
+            Object result = invocation.proceed();
+            call.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> call) throws Throwable {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void count(Method method) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("devices.coalesced",
+                    "method", method.getDeclaringClass().getSimpleName() + "." + method.getName()
+            ).increment();
+        }
+    }
+
+    private record Key(Method method, List<Object> arguments, long generation) {}
+}
@@ -0,0 +1,42 @@
+package com.example.devices.config;
+
+import com.example.devices.cache.EvictAfterCommitCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Read-through cache for single-device lookups.
+ * <p>
+ * Services only talk to Spring's {@link CacheManager}, so a distributed provider can replace the
+ * Caffeine one by swapping this bean. Evictions issued inside a transaction are applied after it
+ * commits, never before; puts are not deferred (see {@link EvictAfterCommitCache}).
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(DeviceCacheProperties.class)
+public class CacheConfig {
+
+    public static final String DEVICES_CACHE = "devices";
+
+    @Bean
+    public CacheManager cacheManager(DeviceCacheProperties properties) {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats());
+        caffeine.setAllowNullValues(false);
+        caffeine.setCacheNames(List.of(DEVICES_CACHE));
+        SimpleCacheManager manager = new SimpleCacheManager();
+        manager.setCaches(List.of(new EvictAfterCommitCache(caffeine.getCache(DEVICES_CACHE))));
+        return manager;
+    }
+}
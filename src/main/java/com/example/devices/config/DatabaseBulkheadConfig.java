@@ -0,0 +1,73 @@
+package com.example.devices.config;
+
+import com.example.devices.datasource.BulkheadDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Virtual-thread mode ({@code spring.threads.virtual.enabled=true}) puts a
+ * {@link BulkheadDataSource} sized to the Hikari pool in front of the application's DataSource.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DatabaseBulkheadConfig {
+
+    @Bean
+    static BeanPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+                    return bean;
+                }
+                DatabaseBulkheadProperties properties = Binder.get(environment)
+                        .bindOrCreate("devices.bulkhead", DatabaseBulkheadProperties.class);
+                int permits = properties.permits() > 0 ? properties.permits() : poolSize(dataSource);
+                return new BulkheadDataSource(dataSource, permits, properties.maxWaiting(), properties.acquireTimeout());
+            }
+        };
+    }
+
+    // The primary pool's size, also when it sits behind a routing proxy.
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException ex) {
+            // fall through to the default
+        }
+        return 10;
+    }
+
+    @Bean
+    MeterBinder databaseBulkheadMetrics(DataSource dataSource) throws SQLException {
+        BulkheadDataSource bulkhead = dataSource.unwrap(BulkheadDataSource.class);
+        return registry -> {
+            Gauge.builder("devices.db.bulkhead.permits", bulkhead, BulkheadDataSource::getMaxPermits)
+                    .description("Connection permits of the database bulkhead")
+                    .register(registry);
+            Gauge.builder("devices.db.bulkhead.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                    .description("Connection permits currently free")
+                    .register(registry);
+            Gauge.builder("devices.db.bulkhead.waiting", bulkhead, BulkheadDataSource::getWaiting)
+                    .description("Callers queued for a connection permit")
+                    .register(registry);
+            FunctionCounter.builder("devices.db.bulkhead.rejected", bulkhead, BulkheadDataSource::getRejected)
+                    .description("Callers turned away by the database bulkhead")
+                    .register(registry);
+        };
+    }
+}
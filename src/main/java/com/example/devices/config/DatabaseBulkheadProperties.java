@@ -0,0 +1,20 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Limits for {@link com.example.devices.datasource.BulkheadDataSource}.
+ *
+ * @param permits        concurrent connection holders; 0 means the connection pool's maximum size
+ * @param maxWaiting     callers allowed to queue for a permit before new ones are rejected
+ * @param acquireTimeout how long a caller waits for a permit
+ */
+@ConfigurationProperties(prefix = "devices.bulkhead")
+public record DatabaseBulkheadProperties(
+        @DefaultValue("0") int permits,
+        @DefaultValue("200") int maxWaiting,
+        @DefaultValue("2s") Duration acquireTimeout
+) {}
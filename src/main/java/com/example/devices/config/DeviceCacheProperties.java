@@ -0,0 +1,18 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the in-process device cache.
+ *
+ * @param maximumSize entries kept before the least valuable ones are evicted
+ * @param ttl         time after which an entry is dropped even if it was never invalidated
+ */
+@ConfigurationProperties(prefix = "devices.cache")
+public record DeviceCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration ttl
+) {}
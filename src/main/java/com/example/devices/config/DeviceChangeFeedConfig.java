@@ -0,0 +1,25 @@
+package com.example.devices.config;
+
+import com.example.devices.event.DeviceChangeFeed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(DeviceChangeFeedProperties.class)
+public class DeviceChangeFeedConfig {
+
+    @Bean
+    DeviceChangeFeed deviceChangeFeed(DeviceChangeFeedProperties properties) {
+        return new DeviceChangeFeed(properties.bufferSize(), properties.heartbeat(), properties.timeout());
+    }
+
+    @Bean
+    MeterBinder deviceChangeFeedMetrics(DeviceChangeFeed feed) {
+        return registry -> Gauge.builder("devices.changes.subscribers", feed, DeviceChangeFeed::getSubscribers)
+                .description("Open device change streams")
+                .register(registry);
+    }
+}
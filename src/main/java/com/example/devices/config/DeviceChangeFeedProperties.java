@@ -0,0 +1,20 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * The {@code GET /api/devices/changes} event stream.
+ *
+ * @param bufferSize changes kept for consumers that reconnect with {@code Last-Event-ID}
+ * @param heartbeat  how often an idle stream sends a comment, so dead connections are noticed
+ * @param timeout    how long one stream stays open; clients reconnect and resume after that
+ */
+@ConfigurationProperties(prefix = "devices.changes")
+public record DeviceChangeFeedProperties(
+        @DefaultValue("10000") int bufferSize,
+        @DefaultValue("15s") Duration heartbeat,
+        @DefaultValue("30m") Duration timeout
+) {}
@@ -0,0 +1,20 @@
+package com.example.devices.config;
+
+import com.example.devices.domain.AssignableUuidGenerator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hands {@code devices.ids.strategy} to Hibernate, where {@link AssignableUuidGenerator} reads it.
+ */
+@Configuration
+@EnableConfigurationProperties(DeviceIdProperties.class)
+public class DeviceIdConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer deviceIdStrategy(DeviceIdProperties properties) {
+        return hibernate -> hibernate.put(AssignableUuidGenerator.STRATEGY_SETTING, properties.strategy().name());
+    }
+}
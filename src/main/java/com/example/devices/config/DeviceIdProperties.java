@@ -0,0 +1,15 @@
+package com.example.devices.config;
+
+import com.example.devices.domain.UuidStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Device ids.
+ *
+ * @param strategy how new ids are generated, by Hibernate and by the ingestion queue
+ */
+@ConfigurationProperties(prefix = "devices.ids")
+public record DeviceIdProperties(
+        @DefaultValue("TIME_ORDERED") UuidStrategy strategy
+) {}
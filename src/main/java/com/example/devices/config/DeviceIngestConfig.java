@@ -0,0 +1,63 @@
+package com.example.devices.config;
+
+import com.example.devices.ingest.DeviceIngestQueue;
+import com.example.devices.ingest.WriteAheadLog;
+import com.example.devices.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * With {@code devices.ingest.enabled=true}, {@code POST /api/devices} hands new devices to a
+ * {@link DeviceIngestQueue} and answers 202 instead of inserting them itself.
+ */
+@Configuration
+@EnableConfigurationProperties({DeviceIngestProperties.class, DeviceIdProperties.class})
+@ConditionalOnProperty(prefix = "devices.ingest", name = "enabled", havingValue = "true")
+public class DeviceIngestConfig {
+
+    @Bean
+    DeviceIngestQueue deviceIngestQueue(DeviceIngestProperties properties, DeviceIdProperties ids,
+                                        DeviceRepository repository, PlatformTransactionManager transactionManager,
+                                        ApplicationEventPublisher events, ObjectMapper objectMapper) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(Path.of(properties.walDirectory()),
+                properties.segmentSize().toBytes(), properties.fsync());
+        return new DeviceIngestQueue(wal, repository, new TransactionTemplate(transactionManager), events, objectMapper,
+                ids.strategy(), properties.capacity(), properties.batchSize(), properties.pollInterval(), properties.shutdownTimeout());
+    }
+
+    @Bean
+    MeterBinder deviceIngestMetrics(DeviceIngestQueue queue) {
+        return registry -> {
+            Gauge.builder("devices.ingest.queue.depth", queue, DeviceIngestQueue::getDepth)
+                    .description("Accepted devices not yet stored")
+                    .register(registry);
+            Gauge.builder("devices.ingest.queue.capacity", queue, DeviceIngestQueue::getCapacity)
+                    .description("Accepted devices allowed to wait before creates are rejected")
+                    .register(registry);
+            FunctionCounter.builder("devices.ingest.accepted", queue, DeviceIngestQueue::getAccepted)
+                    .description("Devices accepted for write-behind insertion")
+                    .register(registry);
+            FunctionCounter.builder("devices.ingest.rejected", queue, DeviceIngestQueue::getRejected)
+                    .description("Creates turned away because the ingestion queue was full")
+                    .register(registry);
+            FunctionCounter.builder("devices.ingest.written", queue, DeviceIngestQueue::getWritten)
+                    .description("Ingested devices inserted into the database")
+                    .register(registry);
+            FunctionCounter.builder("devices.ingest.discarded", queue, DeviceIngestQueue::getDiscarded)
+                    .description("Ingested devices the database refused")
+                    .register(registry);
+        };
+    }
+}
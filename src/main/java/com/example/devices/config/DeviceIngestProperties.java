@@ -0,0 +1,31 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Write-behind ingestion for {@code POST /api/devices}.
+ *
+ * @param capacity        accepted devices not yet stored; beyond this, creates are answered with 429
+ * @param batchSize       devices inserted per transaction
+ * @param pollInterval    how long the idle writer waits for work before checking for shutdown
+ * @param walDirectory    where the write-ahead log segments live
+ * @param segmentSize     size at which the write-ahead log starts a new segment
+ * @param fsync           force every accepted device to disk before answering; concurrent
+ *                        submissions share one force
+ * @param shutdownTimeout how long shutdown waits for the queue to drain
+ */
+@ConfigurationProperties(prefix = "devices.ingest")
+public record DeviceIngestProperties(
+        boolean enabled,
+        @DefaultValue("10000") int capacity,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("100ms") Duration pollInterval,
+        @DefaultValue("data/ingest") String walDirectory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("30s") Duration shutdownTimeout
+) {}
@@ -0,0 +1,75 @@
+package com.example.devices.config;
+
+import com.example.devices.outbox.DeviceOutboxWriter;
+import com.example.devices.outbox.FileOutboxSink;
+import com.example.devices.outbox.InMemoryOutboxSink;
+import com.example.devices.outbox.OutboxRelay;
+import com.example.devices.outbox.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * With {@code devices.outbox.enabled=true}, every device change is also written to
+ * {@code device_outbox} in its own transaction and relayed to an {@link OutboxSink} in the
+ * background. An {@code OutboxSink} bean of the application's own replaces the configured one.
+ */
+@Configuration
+@EnableConfigurationProperties(DeviceOutboxProperties.class)
+@ConditionalOnProperty(prefix = "devices.outbox", name = "enabled", havingValue = "true")
+public class DeviceOutboxConfig {
+
+    @Bean
+    DeviceOutboxWriter deviceOutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        return new DeviceOutboxWriter(jdbcTemplate, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(OutboxSink.class)
+    @ConditionalOnProperty(prefix = "devices.outbox", name = "sink", havingValue = "file")
+    FileOutboxSink fileOutboxSink(DeviceOutboxProperties properties, ObjectMapper objectMapper) throws IOException {
+        return new FileOutboxSink(Path.of(properties.file()), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(OutboxSink.class)
+    @ConditionalOnProperty(prefix = "devices.outbox", name = "sink", havingValue = "memory", matchIfMissing = true)
+    InMemoryOutboxSink inMemoryOutboxSink(DeviceOutboxProperties properties) {
+        return new InMemoryOutboxSink(properties.memoryLimit());
+    }
+
+    @Bean
+    OutboxRelay outboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            OutboxSink sink, DeviceOutboxProperties properties) {
+        return new OutboxRelay(jdbcTemplate, new TransactionTemplate(transactionManager), sink,
+                properties.batchSize(), properties.parallelism(), properties.pollInterval());
+    }
+
+    @Bean
+    MeterBinder deviceOutboxMetrics(OutboxRelay relay) {
+        return registry -> {
+            Gauge.builder("devices.outbox.lag", relay, OutboxRelay::getLagSeconds)
+                    .description("Age of the oldest message in the latest relayed batch, 0 when the outbox is empty")
+                    .baseUnit("seconds")
+                    .register(registry);
+            FunctionCounter.builder("devices.outbox.published", relay, OutboxRelay::getPublished)
+                    .description("Outbox messages handed to the sink")
+                    .register(registry);
+            FunctionCounter.builder("devices.outbox.failures", relay, OutboxRelay::getFailures)
+                    .description("Relay batches that failed and will be retried")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Transactional outbox of device changes.
+ *
+ * @param sink         where relayed messages go: {@code memory} or {@code file}
+ * @param file         file the {@code file} sink appends to
+ * @param memoryLimit  messages the {@code memory} sink keeps
+ * @param batchSize    messages locked, published and deleted per relay transaction
+ * @param parallelism  relay workers
+ * @param pollInterval how long an idle worker waits before polling again
+ */
+@ConfigurationProperties(prefix = "devices.outbox")
+public record DeviceOutboxProperties(
+        boolean enabled,
+        @DefaultValue("memory") String sink,
+        @DefaultValue("data/outbox/device-changes.jsonl") String file,
+        @DefaultValue("10000") int memoryLimit,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("1") int parallelism,
+        @DefaultValue("500ms") Duration pollInterval
+) {}
@@ -0,0 +1,28 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas for read-only transactions.
+ *
+ * @param urls             JDBC URLs of the replicas
+ * @param username         replica user; defaults to {@code spring.datasource.username}
+ * @param password         replica password; defaults to {@code spring.datasource.password}
+ * @param maximumPoolSize  connection pool size per replica
+ * @param maxLag           replicas further behind than this are taken out of rotation
+ * @param lagCheckInterval how often replica lag is measured
+ */
+@ConfigurationProperties(prefix = "devices.replicas")
+public record DeviceReplicaProperties(
+        boolean enabled,
+        @DefaultValue List<String> urls,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize,
+        @DefaultValue("5s") Duration maxLag,
+        @DefaultValue("5s") Duration lagCheckInterval
+) {}
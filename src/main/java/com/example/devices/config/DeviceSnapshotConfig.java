@@ -0,0 +1,62 @@
+package com.example.devices.config;
+
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.snapshot.DeviceSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * With {@code devices.snapshot.enabled=true}, state and brand queries are answered from a
+ * {@link DeviceSnapshot} built once the application has started; they go to the database until then.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(DeviceSnapshotProperties.class)
+@ConditionalOnProperty(prefix = "devices.snapshot", name = "enabled", havingValue = "true")
+public class DeviceSnapshotConfig {
+
+    @Bean
+    DeviceSnapshot deviceSnapshot(DeviceRepository repository, PlatformTransactionManager transactionManager) {
+        // not read-only, so rebuilds and row counts are served by the primary, never a replica
+        return new DeviceSnapshot(repository, new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    ApplicationRunner deviceSnapshotLoader(DeviceSnapshot snapshot) {
+        return args -> snapshot.rebuild();
+    }
+
+    @Bean
+    SchedulingConfigurer deviceSnapshotVerification(DeviceSnapshot snapshot, DeviceSnapshotProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(snapshot::verify, properties.verifyInterval());
+    }
+
+    @Bean
+    MeterBinder deviceSnapshotMetrics(DeviceSnapshot snapshot) {
+        return registry -> {
+            Gauge.builder("devices.snapshot.size", snapshot, DeviceSnapshot::size)
+                    .description("Devices held in the in-memory snapshot")
+                    .register(registry);
+            Gauge.builder("devices.snapshot.age", snapshot, DeviceSnapshot::getAgeSeconds)
+                    .description("Time since the snapshot was last rebuilt from the table, -1 before the first build")
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("devices.snapshot.drift", snapshot, DeviceSnapshot::getDrift)
+                    .description("Difference between snapshot size and table rows at the last check, -1 before the first build")
+                    .register(registry);
+            FunctionCounter.builder("devices.snapshot.changes", snapshot, DeviceSnapshot::getApplied)
+                    .description("Committed device changes applied to the snapshot")
+                    .register(registry);
+        };
+    }
+}
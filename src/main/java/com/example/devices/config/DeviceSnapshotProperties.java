@@ -0,0 +1,18 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * In-memory device snapshot.
+ *
+ * @param enabled        answer state and brand queries from a snapshot of the table kept in memory
+ * @param verifyInterval how often the snapshot size is compared with the table's row count
+ */
+@ConfigurationProperties(prefix = "devices.snapshot")
+public record DeviceSnapshotProperties(
+        boolean enabled,
+        @DefaultValue("1m") Duration verifyInterval
+) {}
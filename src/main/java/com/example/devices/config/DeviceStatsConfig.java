@@ -0,0 +1,35 @@
+package com.example.devices.config;
+
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.stats.DeviceStatsCounter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * With {@code devices.stats.in-memory=true}, {@code GET /api/devices/stats} is answered from a
+ * {@link DeviceStatsCounter}, loaded by the first recount after startup.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(DeviceStatsProperties.class)
+@ConditionalOnProperty(prefix = "devices.stats", name = "in-memory", havingValue = "true")
+public class DeviceStatsConfig {
+
+    @Bean
+    DeviceStatsCounter deviceStatsCounter(DeviceRepository repository, PlatformTransactionManager transactionManager) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return new DeviceStatsCounter(repository, readOnly);
+    }
+
+    @Bean
+    SchedulingConfigurer deviceStatsRecount(DeviceStatsCounter counter, DeviceStatsProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(counter::recount, properties.recountInterval());
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Device statistics.
+ *
+ * @param inMemory        serve {@code GET /api/devices/stats} from counters kept up to date by the
+ *                        service instead of grouping the table on every call
+ * @param recountInterval how often the counters are checked against a fresh {@code GROUP BY}
+ */
+@ConfigurationProperties(prefix = "devices.stats")
+public record DeviceStatsProperties(
+        boolean inMemory,
+        @DefaultValue("1m") Duration recountInterval
+) {}
@@ -0,0 +1,81 @@
+package com.example.devices.config;
+
+import com.example.devices.datasource.BulkheadDataSource;
+import com.example.devices.ratelimit.RateLimitFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.IntSupplier;
+
+/**
+ * With {@code devices.ratelimit.enabled=true}, every {@code /api/devices} request passes a
+ * {@link RateLimitFilter} first; load shedding watches the callers waiting for a database
+ * connection.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(prefix = "devices.ratelimit", name = "enabled", havingValue = "true")
+public class RateLimitConfig {
+
+    @Bean
+    RateLimitFilter rateLimitFilter(RateLimitProperties properties, DataSource dataSource,
+                                    ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new RateLimitFilter(properties, pendingConnections(dataSource), objectMapper, meterRegistry);
+    }
+
+    // Right after the observation filter (HIGHEST_PRECEDENCE + 1), so refusals still show up as 429s
+    // in http.server.requests, and ahead of the remaining filters, so they cost little.
+    @Bean
+    FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/devices", "/api/devices/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    MeterBinder rateLimitMetrics(RateLimitFilter filter) {
+        return registry -> {
+            Gauge.builder("devices.ratelimit.clients", filter, RateLimitFilter::getClientCount)
+                    .description("Clients with rate limit buckets in memory")
+                    .register(registry);
+            Gauge.builder("devices.ratelimit.latency", filter, RateLimitFilter::getLatencySeconds)
+                    .description("Moving average of request latency that load shedding compares with its limit")
+                    .baseUnit("seconds")
+                    .register(registry);
+        };
+    }
+
+    // Callers waiting for a connection of the primary pool. With virtual threads the bulkhead
+    // queues them before they reach Hikari, so its waiting callers count as well.
+    private static IntSupplier pendingConnections(DataSource dataSource) {
+        HikariDataSource hikari = unwrap(dataSource, HikariDataSource.class);
+        BulkheadDataSource bulkhead = unwrap(dataSource, BulkheadDataSource.class);
+        return () -> {
+            // null until the pool has started
+            HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+            return (pool == null ? 0 : pool.getThreadsAwaitingConnection())
+                    + (bulkhead == null ? 0 : bulkhead.getWaiting());
+        };
+    }
+
+    private static <T> T unwrap(DataSource dataSource, Class<T> type) {
+        try {
+            return dataSource.isWrapperFor(type) ? dataSource.unwrap(type) : null;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Per-client admission limits for {@code /api/devices}. Expensive requests are the ones that
+ * read many rows (lists, pages, search, stats, brand and state lookups, batches); everything
+ * else, such as reads by id and single writes, is cheap.
+ *
+ * @param apiKeyHeader          header identifying a client together with its remote address;
+ *                              requests without it are keyed by remote address alone
+ * @param cheapPerSecond        sustained cheap requests per second and client
+ * @param cheapBurst            cheap requests a client may send at once
+ * @param expensivePerSecond    sustained expensive requests per second and client
+ * @param expensiveBurst        expensive requests a client may send at once
+ * @param maxClients            clients tracked at once; the least recently seen are dropped first
+ * @param maxKeysPerAddress     API keys with budgets of their own per remote address; requests
+ *                              with further keys share the address's budget. The keys are not
+ *                              validated, so this stops a client from minting fresh ones to get
+ *                              fresh buckets
+ * @param shedPendingConnections expensive requests are refused while more callers than this wait
+ *                              for a pooled connection, in the bulkhead or the pool; 0 disables
+ *                              the check
+ * @param shedLatency           expensive requests are refused while the moving average of request
+ *                              latency exceeds this; 0 disables the check
+ */
+@ConfigurationProperties(prefix = "devices.ratelimit")
+public record RateLimitProperties(
+        boolean enabled,
+        @DefaultValue("X-API-Key") String apiKeyHeader,
+        @DefaultValue("50") double cheapPerSecond,
+        @DefaultValue("100") int cheapBurst,
+        @DefaultValue("2") double expensivePerSecond,
+        @DefaultValue("5") int expensiveBurst,
+        @DefaultValue("100000") int maxClients,
+        @DefaultValue("8") int maxKeysPerAddress,
+        @DefaultValue("10") int shedPendingConnections,
+        @DefaultValue("500ms") Duration shedLatency
+) {}
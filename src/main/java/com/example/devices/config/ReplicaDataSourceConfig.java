@@ -0,0 +1,91 @@
+package com.example.devices.config;
+
+import com.example.devices.datasource.ReplicaLagMonitor;
+import com.example.devices.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * With {@code devices.replicas.enabled=true}, replaces Boot's DataSource with a
+ * {@link ReplicaRoutingDataSource}: the primary pool is configured from {@code spring.datasource.*}
+ * as usual, and read-only transactions are served by the replicas in {@code devices.replicas.urls}.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(DeviceReplicaProperties.class)
+@ConditionalOnProperty(prefix = "devices.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    ReplicaRoutingDataSource dataSource(DataSourceProperties properties, DeviceReplicaProperties replicas,
+                                        Environment environment) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+
+        Map<String, DataSource> targets = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.urls().size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setJdbcUrl(replicas.urls().get(i));
+            replica.setUsername(replicas.username() != null ? replicas.username() : properties.determineUsername());
+            replica.setPassword(replicas.password() != null ? replicas.password() : properties.determinePassword());
+            replica.setMaximumPoolSize(replicas.maximumPoolSize());
+            // same driver as the primary, so the same driver tuning (statement caches etc.) applies
+            replica.setDataSourceProperties(primary.getDataSourceProperties());
+            replica.setReadOnly(true);
+            replica.setPoolName("replica-" + i);
+            targets.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primary, targets, replicas.maxLag());
+    }
+
+    @Bean
+    ReplicaLagMonitor replicaLagMonitor(DataSource dataSource, DeviceReplicaProperties replicas) throws SQLException {
+        ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        Map<String, DatabaseDriver> drivers = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.urls().size(); i++) {
+            drivers.put(routing.getReplicaNames().get(i), DatabaseDriver.fromJdbcUrl(replicas.urls().get(i)));
+        }
+        return new ReplicaLagMonitor(routing, drivers);
+    }
+
+    @Bean
+    SchedulingConfigurer replicaLagSchedule(ReplicaLagMonitor monitor, DeviceReplicaProperties replicas) {
+        return registrar -> registrar.addFixedDelayTask(monitor::check, replicas.lagCheckInterval());
+    }
+
+    @Bean
+    MeterBinder replicaMetrics(DataSource dataSource) throws SQLException {
+        ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        return registry -> routing.getReplicaNames().forEach(name -> {
+            Gauge.builder("devices.db.replica.lag", routing, r -> r.getLagSeconds(name))
+                    .description("Last measured replication lag in seconds, -1 when unknown")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(registry);
+            Gauge.builder("devices.db.replica.usable", routing, r -> r.isUsable(name) ? 1 : 0)
+                    .description("1 while the replica serves read-only transactions")
+                    .tag("replica", name)
+                    .register(registry);
+        });
+    }
+}
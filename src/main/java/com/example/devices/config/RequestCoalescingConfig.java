@@ -0,0 +1,41 @@
+package com.example.devices.config;
+
+import com.example.devices.coalesce.Coalesced;
+import com.example.devices.coalesce.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * Applies {@link RequestCoalescer} to {@link Coalesced} methods ({@code devices.coalesce.enabled},
+ * on by default). It runs outside the cache and transaction interceptors, so waiting callers
+ * neither look up the cache nor open a transaction of their own.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "devices.coalesce", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestCoalescingConfig {
+
+    // a bean of its own so it receives the committed device changes
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static RequestCoalescer requestCoalescer(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RequestCoalescer(meterRegistry);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requestCoalescingAdvisor(RequestCoalescer requestCoalescer) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(Coalesced.class), requestCoalescer);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.devices.config;
+
+import com.example.devices.responsecache.ResponseBodyCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code devices.response-cache.enabled=true}, state and brand list responses are sent from
+ * a {@link ResponseBodyCache} of their encoded bytes.
+ */
+@Configuration
+@EnableConfigurationProperties(ResponseBodyCacheProperties.class)
+@ConditionalOnProperty(prefix = "devices.response-cache", name = "enabled", havingValue = "true")
+public class ResponseBodyCacheConfig {
+
+    public static final String RESPONSES_CACHE = "device-responses";
+
+    @Bean
+    ResponseBodyCache responseBodyCache(ResponseBodyCacheProperties properties) {
+        return new ResponseBodyCache(properties.maximumSize().toBytes(), properties.ttl(),
+                properties.gzipMinSize().toBytes());
+    }
+
+    @Bean
+    MeterBinder responseBodyCacheMetrics(ResponseBodyCache cache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, cache.getNativeCache(), RESPONSES_CACHE);
+            Gauge.builder("devices.response.cache.bytes", cache, ResponseBodyCache::getBytes)
+                    .description("Bytes of encoded list responses held, gzipped copies included")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
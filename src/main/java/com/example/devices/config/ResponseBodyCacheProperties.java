@@ -0,0 +1,23 @@
+package com.example.devices.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cache of encoded state and brand list responses.
+ *
+ * @param enabled     serve repeated state and brand queries from cached response bytes
+ * @param maximumSize bytes of bodies kept before the least valuable ones are evicted
+ * @param ttl         time after which a body is dropped even if no change was committed
+ * @param gzipMinSize bodies at least this large are also kept gzipped
+ */
+@ConfigurationProperties(prefix = "devices.response-cache")
+public record ResponseBodyCacheProperties(
+        boolean enabled,
+        @DefaultValue("64MB") DataSize maximumSize,
+        @DefaultValue("5m") Duration ttl,
+        @DefaultValue("2KB") DataSize gzipMinSize
+) {}
@@ -0,0 +1,86 @@
+package com.example.devices.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.*;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long each startup phase took, plus the slowest individual startup steps (bean
+ * instantiation, Flyway, the JPA EntityManagerFactory, ...) when the application is ready.
+ * <p>
+ * Registered on the {@code SpringApplication} itself because the first phases run before the
+ * context exists.
+ */
+public class StartupTimingListener implements ApplicationListener<SpringApplicationEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimingListener.class);
+    private static final int SLOWEST_STEPS = 5;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long start;
+    private long last;
+
+    @Override
+    public void onApplicationEvent(SpringApplicationEvent event) {
+        long now = System.nanoTime();
+        switch (event) {
+            case ApplicationStartingEvent e -> {
+                start = now;
+                last = now;
+            }
+            case ApplicationEnvironmentPreparedEvent e -> record("environment", now);
+            case ApplicationContextInitializedEvent e -> record("context-initialized", now);
+            case ApplicationPreparedEvent e -> record("bean-definitions", now);
+            case ApplicationStartedEvent e -> record("context-refresh", now);
+            case ApplicationReadyEvent e -> {
+                record("runners", now);
+                report(e, now);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void record(String phase, long now) {
+        phases.put(phase, now - last);
+        last = now;
+    }
+
+    private void report(ApplicationReadyEvent event, long now) {
+        log.info("Startup took {} ms: {}", millis(now - start), phases.entrySet().stream()
+                .map(p -> p.getKey() + "=" + millis(p.getValue()) + "ms")
+                .collect(Collectors.joining(", ")));
+
+        if (event.getSpringApplication().getApplicationStartup() instanceof BufferingApplicationStartup buffering) {
+            String slowest = buffering.getBufferedTimeline().getEvents().stream()
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(SLOWEST_STEPS)
+                    .map(step -> describe(step) + "=" + step.getDuration().toMillis() + "ms")
+                    .collect(Collectors.joining(", "));
+            log.info("Slowest startup steps: {}", slowest);
+        }
+    }
+
+    private static String describe(StartupTimeline.TimelineEvent step) {
+        StringBuilder name = new StringBuilder(step.getStartupStep().getName());
+        step.getStartupStep().getTags().forEach(tag -> {
+            if (tag.getKey().equals("beanName")) {
+                name.append('[').append(tag.getValue()).append(']');
+            }
+        });
+        return name.toString();
+    }
+
+    private static long millis(long nanos) {
+        return Duration.ofNanos(nanos).toMillis();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.devices.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * {@code application/cbor} for clients that ask for it with {@code Accept}. Field names and
+ * strings are as in JSON, but ids go out as 16-byte binary strings and instants as epoch
+ * microseconds (the precision they are stored with), which is where most of the JSON bytes of a
+ * device are spent.
+ */
+@Component
+public class CompactCborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+    public CompactCborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        super(compactMapper(builder));
+    }
+
+    /**
+     * The application's Jackson settings on a CBOR factory. UUIDs need nothing extra: Jackson
+     * writes them as binary whenever the format supports it natively.
+     */
+    public static ObjectMapper compactMapper(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = builder.factory(new CBORFactory()).build();
+        // registered last so it takes precedence over the java.time module's ISO-8601 strings
+        mapper.registerModule(new SimpleModule("EpochMicros")
+                .addSerializer(Instant.class, new EpochMicrosSerializer())
+                .addDeserializer(Instant.class, new EpochMicrosDeserializer()));
+        return mapper;
+    }
+
+    static final class EpochMicrosSerializer extends StdScalarSerializer<Instant> {
+
+        EpochMicrosSerializer() {
+            super(Instant.class);
+        }
+
+        @Override
+        public void serialize(Instant value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(ChronoUnit.MICROS.between(Instant.EPOCH, value));
+        }
+    }
+
+    static final class EpochMicrosDeserializer extends StdScalarDeserializer<Instant> {
+
+        EpochMicrosDeserializer() {
+            super(Instant.class);
+        }
+
+        @Override
+        public Instant deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return Instant.EPOCH.plus(parser.getLongValue(), ChronoUnit.MICROS);
+        }
+    }
+}
@@ -1,64 +1,368 @@
 package com.example.devices.controller;
 
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.CountMode;
+import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.BatchItemResult;
+import com.example.devices.dto.DeviceBatchUpdateRequest;
+import com.example.devices.dto.DevicePage;
 import com.example.devices.dto.DeviceRequest;
 import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceSearchPage;
+import com.example.devices.dto.DeviceSearchRequest;
+import com.example.devices.dto.DeviceSnapshotStatus;
+import com.example.devices.dto.DeviceStats;
 import com.example.devices.dto.DeviceUpdateRequest;
+import com.example.devices.event.DeviceChangeFeed;
+import com.example.devices.exception.NotFoundException;
+import com.example.devices.exception.PreconditionFailedException;
+import com.example.devices.ingest.DeviceIngestQueue;
+import com.example.devices.responsecache.ResponseBodyCache;
+import com.example.devices.service.DeviceSearchService;
 import com.example.devices.service.DeviceService;
+import com.example.devices.service.DeviceStatsService;
+import com.example.devices.snapshot.DeviceSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/devices")
 public class DeviceController {
 
     private final DeviceService service;
+    private final DeviceStatsService statsService;
+    private final DeviceSearchService searchService;
+    private final DeviceChangeFeed changeFeed;
+    private final ObjectMapper objectMapper;
+    // present only with devices.ingest.enabled=true
+    private final DeviceIngestQueue ingestQueue;
+    // present only with devices.snapshot.enabled=true
+    private final DeviceSnapshot snapshot;
+    // present only with devices.response-cache.enabled=true
+    private final ResponseBodyCache bodyCache;
+    private final ObjectMapper cborMapper;
+    // Streamed rows must not flush the socket one by one; let the generator buffer fill first.
+    private final ObjectWriter rowWriter;
+    private final ObjectWriter cborRowWriter;
+    private final ObjectWriter listWriter;
+    private final ObjectWriter cborListWriter;
 
-    public DeviceController(DeviceService service) {
+    public DeviceController(DeviceService service, DeviceStatsService statsService, DeviceSearchService searchService,
+                            DeviceChangeFeed changeFeed, ObjectMapper objectMapper,
+                            CompactCborHttpMessageConverter cborConverter,
+                            ObjectProvider<DeviceIngestQueue> ingestQueue, ObjectProvider<DeviceSnapshot> snapshot,
+                            ObjectProvider<ResponseBodyCache> bodyCache) {
         this.service = service;
+        this.statsService = statsService;
+        this.searchService = searchService;
+        this.changeFeed = changeFeed;
+        this.objectMapper = objectMapper;
+        this.ingestQueue = ingestQueue.getIfAvailable();
+        this.snapshot = snapshot.getIfAvailable();
+        this.bodyCache = bodyCache.getIfAvailable();
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.rowWriter = objectMapper.writerFor(DeviceResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.cborRowWriter = cborMapper.writerFor(DeviceResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.listWriter = objectMapper.writerFor(new TypeReference<List<DeviceResponse>>() {});
+        this.cborListWriter = cborMapper.writerFor(new TypeReference<List<DeviceResponse>>() {});
     }
 
+    /**
+     * 201 with the stored device, or in ingestion mode 202 with the id it will be stored under.
+     */
     @PostMapping
     public ResponseEntity<DeviceResponse> create(@Valid @RequestBody DeviceRequest request) {
+        if (ingestQueue != null) {
+            DeviceResponse accepted = ingestQueue.submit(request);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(accepted.id()).toUri())
+                    .body(accepted);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(service.create(request));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> createBatch(@RequestBody List<DeviceRequest> requests) {
+        return ResponseEntity.ok(service.createAll(requests));
+    }
+
+    @PatchMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> updateBatch(@RequestBody List<DeviceBatchUpdateRequest> requests) {
+        return ResponseEntity.ok(service.updateAll(requests));
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> deleteBatch(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(service.deleteAll(ids));
+    }
+
+    /**
+     * The ETag is the device version; Spring answers a matching {@code If-None-Match} with 304.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<DeviceResponse> getById(@PathVariable UUID id) {
-        return ResponseEntity.ok(service.findById(id));
+        DeviceResponse device = service.findById(id);
+        return ResponseEntity.ok().eTag(etag(device)).body(device);
     }
 
+    /**
+     * Streams the full table as a chunked JSON array; rows are written as they are read.
+     */
     @GetMapping
-    public ResponseEntity<List<DeviceResponse>> getAll() {
-        return ResponseEntity.ok(service.findAll());
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                service.streamAll(device -> write(rowWriter, json, device));
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Same rows as {@link #getAll()}, one JSON document per line.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.setRootValueSeparator(null);
+                service.streamAll(device -> {
+                    write(rowWriter, json, device);
+                    newLine(json);
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Same rows as {@link #getAll()} as one CBOR array of indefinite length, encoded like every
+     * other CBOR response (see {@link CompactCborHttpMessageConverter}).
+     */
+    @GetMapping(produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAllCbor() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator cbor = cborMapper.getFactory().createGenerator(out)) {
+                cbor.writeStartArray();
+                service.streamAll(device -> write(cborRowWriter, cbor, device));
+                cbor.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_CBOR).body(body);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<DevicePage> getPage(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        return ResponseEntity.ok(service.findPage(limit, cursor));
     }
 
     @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<DeviceResponse>> getByBrand(@PathVariable String brand) {
-        return ResponseEntity.ok(service.findByBrand(brand));
+    public ResponseEntity<?> getByBrand(
+            @PathVariable String brand,
+            @RequestParam(defaultValue = "CONTAINS") BrandMatch match,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return list(MediaType.APPLICATION_JSON, brandQuery(brand, match), acceptEncoding,
+                () -> service.findByBrand(brand, match));
+    }
+
+    @GetMapping(path = "/brand/{brand}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> getByBrandCbor(
+            @PathVariable String brand,
+            @RequestParam(defaultValue = "CONTAINS") BrandMatch match,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return list(MediaType.APPLICATION_CBOR, brandQuery(brand, match), acceptEncoding,
+                () -> service.findByBrand(brand, match));
     }
 
     @GetMapping("/state/{state}")
-    public ResponseEntity<List<DeviceResponse>> getByState(@PathVariable DeviceState state) {
-        return ResponseEntity.ok(service.findByState(state));
+    public ResponseEntity<?> getByState(
+            @PathVariable DeviceState state,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return list(MediaType.APPLICATION_JSON, "state/" + state, acceptEncoding, () -> service.findByState(state));
+    }
+
+    @GetMapping(path = "/state/{state}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> getByStateCbor(
+            @PathVariable DeviceState state,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return list(MediaType.APPLICATION_CBOR, "state/" + state, acceptEncoding, () -> service.findByState(state));
+    }
+
+    /**
+     * All filters are optional and combined with AND; {@code createdTo} is exclusive.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<DeviceSearchPage> search(
+            @RequestParam(required = false) String brand,
+            @RequestParam(defaultValue = "EXACT") BrandMatch match,
+            @RequestParam(required = false) DeviceState state,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) Instant createdFrom,
+            @RequestParam(required = false) Instant createdTo,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "NONE") CountMode count
+    ) {
+        DeviceSearchRequest search = new DeviceSearchRequest(brand, match, state, namePrefix, createdFrom, createdTo);
+        return ResponseEntity.ok(searchService.search(search, direction, limit, cursor, count));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<DeviceStats> getStats(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "30") int days
+    ) {
+        return ResponseEntity.ok(statsService.stats(top, days));
+    }
+
+    /**
+     * Rebuilds the in-memory snapshot from the table, e.g. after rows were changed behind the
+     * application's back; queries keep using the old snapshot until the new one is complete.
+     */
+    @PostMapping("/snapshot/rebuild")
+    public ResponseEntity<DeviceSnapshotStatus> rebuildSnapshot() {
+        if (snapshot == null) {
+            throw new NotFoundException("Device snapshot is not enabled");
+        }
+        snapshot.rebuild();
+        return ResponseEntity.ok(new DeviceSnapshotStatus(snapshot.size(), snapshot.getBuiltAt()));
+    }
+
+    /**
+     * Committed creates, updates and deletes as Server-Sent Events; reconnecting with
+     * {@code Last-Event-ID} resumes after that event.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(lastEventId);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<DeviceResponse> update(
             @PathVariable UUID id,
-            @Valid @RequestBody DeviceUpdateRequest request
+            @Valid @RequestBody DeviceUpdateRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        return ResponseEntity.ok(service.update(id, request));
+        DeviceResponse device = service.update(id, request, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(device)).body(device);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable UUID id) {
-        service.delete(id);
+    public ResponseEntity<Void> delete(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        service.delete(id, expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * A list of devices, encoded by the message converters; with the response cache, the cached
+     * bytes of this generation with a content ETag, gzipped when the client accepts it. Spring
+     * answers a matching {@code If-None-Match} with 304.
+     */
+    private ResponseEntity<?> list(MediaType type, String query, String acceptEncoding,
+                                   Supplier<List<DeviceResponse>> devices) {
+        if (bodyCache == null) {
+            return ResponseEntity.ok(devices.get());
+        }
+        ObjectWriter writer = type.equals(MediaType.APPLICATION_CBOR) ? cborListWriter : listWriter;
+        ResponseBodyCache.Body body = bodyCache.get(query, type, () -> encode(writer, devices.get()));
+        boolean gzip = body.hasGzip() && ResponseBodyCache.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(type)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(body.etag(gzip));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body.bytes(gzip));
+    }
+
+    // brands are looked up by their normalized key, so "Apple" and "apple " share an entry
+    private static String brandQuery(String brand, BrandMatch match) {
+        return "brand/" + match + "/" + Device.normalizeBrand(brand);
+    }
+
+    private static byte[] encode(ObjectWriter writer, List<DeviceResponse> devices) {
+        try {
+            return writer.writeValueAsBytes(devices);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String etag(DeviceResponse device) {
+        return "\"" + device.version() + "\"";
+    }
+
+    /**
+     * Version named by an {@code If-Match} header, or null when the header is absent or {@code *}.
+     * A tag that isn't one of our versions can never match.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the current version");
+        }
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator json, DeviceResponse device) {
+        try {
+            writer.writeValue(json, device);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void newLine(JsonGenerator json) {
+        try {
+            json.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
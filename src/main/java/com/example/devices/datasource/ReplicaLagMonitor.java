@@ -0,0 +1,74 @@
+package com.example.devices.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically asks every replica how far it is behind the primary and feeds the answer to
+ * {@link ReplicaRoutingDataSource}. A replica that can't be queried counts as unusable until the
+ * next successful check.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Caught up when everything received has been replayed; otherwise time since the last replayed commit.
+    private static final String POSTGRES_LAG = """
+            select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end
+            """;
+
+    private final ReplicaRoutingDataSource routing;
+    private final Map<String, DatabaseDriver> drivers;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routing, Map<String, DatabaseDriver> drivers) {
+        this.routing = routing;
+        this.drivers = drivers;
+    }
+
+    public void check() {
+        for (String name : routing.getReplicaNames()) {
+            Duration lag;
+            try {
+                lag = measure(new JdbcTemplate(routing.getReplica(name)), drivers.get(name));
+            } catch (RuntimeException ex) {
+                log.warn("Replica {} lag check failed: {}", name, ex.getMessage());
+                lag = null;
+            }
+            boolean wasUsable = routing.isUsable(name);
+            routing.recordLag(name, lag);
+            if (wasUsable != routing.isUsable(name)) {
+                log.info("Replica {} is now {} (lag {})", name, wasUsable ? "excluded" : "in rotation", lag);
+            }
+        }
+    }
+
+    private static Duration measure(JdbcTemplate jdbc, DatabaseDriver driver) {
+        return switch (driver) {
+            case POSTGRESQL -> {
+                Double seconds = jdbc.queryForObject(POSTGRES_LAG, Double.class);
+                yield Duration.ofMillis(Math.round(seconds * 1000));
+            }
+            case MYSQL -> {
+                List<Long> rows = jdbc.query("SHOW REPLICA STATUS",
+                        (rs, i) -> rs.getObject("Seconds_Behind_Source", Long.class));
+                if (rows.isEmpty()) {
+                    // not configured as a replica (e.g. pointing at the primary itself)
+                    yield Duration.ZERO;
+                }
+                // null while the replication threads are stopped
+                yield rows.get(0) == null ? null : Duration.ofSeconds(rows.get(0));
+            }
+            default -> {
+                jdbc.execute("select 1");
+                yield Duration.ZERO;
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.devices.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to the replicas and everything else to the primary.
+ * <p>
+ * The physical connection is only fetched once the transaction has marked it read-only (or not),
+ * see {@link LazyConnectionDataSourceProxy}. Read-only connections go round-robin to the replicas
+ * whose last measured lag is within {@code maxLag}; when none qualifies they come from the
+ * primary as well.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        super(primary);
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.maxLag = maxLag;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        AbstractRoutingDataSource readOnly = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return nextUsableReplica();
+            }
+        };
+        readOnly.setTargetDataSources(targets);
+        readOnly.setLenientFallback(false);
+        readOnly.afterPropertiesSet();
+        setReadOnlyDataSource(readOnly);
+    }
+
+    /**
+     * Records the outcome of a lag check; {@code lag} is null when the replica could not be
+     * reached or is not replicating.
+     */
+    public void recordLag(String name, Duration lag) {
+        replica(name).lag = lag;
+    }
+
+    public List<String> getReplicaNames() {
+        return replicas.stream().map(replica -> replica.name).toList();
+    }
+
+    public DataSource getReplica(String name) {
+        return replica(name).dataSource;
+    }
+
+    /**
+     * Last measured lag in seconds, or -1 when unknown.
+     */
+    public double getLagSeconds(String name) {
+        Duration lag = replica(name).lag;
+        return lag == null ? -1 : lag.toMillis() / 1000.0;
+    }
+
+    public boolean isUsable(String name) {
+        return isUsable(replica(name));
+    }
+
+    /**
+     * Closes the primary and replica pools on shutdown.
+     */
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private String nextUsableReplica() {
+        if (replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (isUsable(replica)) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private boolean isUsable(Replica replica) {
+        Duration lag = replica.lag;
+        return lag != null && lag.compareTo(maxLag) <= 0;
+    }
+
+    private Replica replica(String name) {
+        return replicas.stream()
+                .filter(replica -> replica.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown replica: " + name));
+    }
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        // null until the first successful check, and after a failed one
+        volatile Duration lag;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
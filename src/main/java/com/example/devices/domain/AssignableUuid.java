@@ -0,0 +1,21 @@
+package com.example.devices.domain;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * UUID identifier that keeps a value assigned by the application before persisting, as the
+ * ingestion queue does when it hands out ids ahead of the insert. Generated values follow the
+ * configured {@link UuidStrategy}.
+ */
+@IdGeneratorType(AssignableUuidGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface AssignableUuid {
+}
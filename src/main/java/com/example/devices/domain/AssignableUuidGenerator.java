@@ -0,0 +1,46 @@
+package com.example.devices.domain;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Generator behind {@link AssignableUuid}. The kind of UUID comes from the Hibernate setting
+ * {@value #STRATEGY_SETTING} (a {@link UuidStrategy} name), time-ordered when unset.
+ */
+public class AssignableUuidGenerator implements BeforeExecutionGenerator {
+
+    public static final String STRATEGY_SETTING = "devices.ids.strategy";
+
+    private final UuidStrategy strategy;
+
+    public AssignableUuidGenerator(AssignableUuid annotation, Member member, CustomIdGeneratorCreationContext context) {
+        Object setting = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(STRATEGY_SETTING);
+        this.strategy = setting == null ? UuidStrategy.TIME_ORDERED : UuidStrategy.valueOf(setting.toString());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        // Hibernate passes no current value for identifiers; read it off the entity
+        Object assigned = session.getEntityPersister(null, owner).getIdentifier(owner, session);
+        return assigned != null ? assigned : strategy.next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
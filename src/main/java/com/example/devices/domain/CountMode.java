@@ -0,0 +1,11 @@
+package com.example.devices.domain;
+
+/**
+ * Whether a search also reports how many devices match. ESTIMATE asks the query planner
+ * (PostgreSQL, MySQL) instead of counting; elsewhere it falls back to EXACT.
+ */
+public enum CountMode {
+    NONE,
+    EXACT,
+    ESTIMATE
+}
@@ -2,13 +2,20 @@ package com.example.devices.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
-@Table(name = "devices")
+@Table(name = "devices", indexes = {
+        @Index(name = "idx_devices_state", columnList = "state"),
+        @Index(name = "idx_devices_state_created_at", columnList = "state, created_at"),
+        @Index(name = "idx_devices_brand_key", columnList = "brand_key"),
+        @Index(name = "idx_devices_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_devices_brand_key_created_at_id", columnList = "brand_key, created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,7 +24,7 @@ import java.util.UUID;
 public class Device {
 
     @Id
-    @UuidGenerator
+    @AssignableUuid
     private UUID id;
 
     @Column(nullable = false)
@@ -26,18 +33,51 @@ public class Device {
     @Column(nullable = false)
     private String brand;
 
+    /**
+     * Lower-cased, trimmed copy of {@link #brand}. Case-insensitive searches compare against this
+     * column so they can use an index instead of wrapping every row in {@code lower(...)}.
+     */
+    @Column(name = "brand_key", nullable = false)
+    private String brandKey;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private DeviceState state;
 
     @Column(name = "created_at", updatable = false, nullable = false)
     @Builder.Default
-    private Instant createdAt = Instant.now();
+    private Instant createdAt = now();
+
+    /**
+     * Bumped by Hibernate on every update; concurrent writers of the same row fail instead of
+     * overwriting each other. Exposed to clients as the ETag.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 
     @PrePersist
     void prePersist() {
         if (createdAt == null) {
-            createdAt = Instant.now();
+            createdAt = now();
         }
+        brandKey = normalizeBrand(brand);
+    }
+
+    @PreUpdate
+    void preUpdate() {
+        brandKey = normalizeBrand(brand);
+    }
+
+    public static String normalizeBrand(String brand) {
+        return brand == null ? null : brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Current time at the precision the database keeps, so keyset cursors built from a freshly
+     * saved entity compare equal to the stored row.
+     */
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
     }
 }
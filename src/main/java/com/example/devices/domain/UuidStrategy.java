@@ -0,0 +1,51 @@
+package com.example.devices.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How new device ids are made. Both kinds are ordinary UUIDs in the same column, so switching
+ * strategies leaves existing ids valid.
+ */
+public enum UuidStrategy {
+
+    /**
+     * Version 4: 122 random bits. Consecutive inserts land on random pages of the primary key
+     * index, which splits pages and keeps the whole index hot in the buffer cache.
+     */
+    RANDOM {
+        @Override
+        public UUID next() {
+            return UUID.randomUUID();
+        }
+    },
+
+    /**
+     * Version 7 (RFC 9562): the creation time in milliseconds up front, so consecutive inserts
+     * append to the right edge of the index. Leaks the creation time, as {@code createdAt} does.
+     */
+    TIME_ORDERED {
+        @Override
+        public UUID next() {
+            return timeOrdered(System.currentTimeMillis());
+        }
+    };
+
+    // last (millis << 12 | counter) handed out; keeps ids from this process strictly increasing
+    private static final AtomicLong lastStamp = new AtomicLong();
+
+    public abstract UUID next();
+
+    /**
+     * A version 7 UUID for {@code millis}. The 12 {@code rand_a} bits count ids within the same
+     * millisecond (RFC 9562 method 3); after 4096 of them the timestamp runs a little ahead of the
+     * clock rather than losing the order. The remaining 62 bits are random.
+     */
+    static UUID timeOrdered(long millis) {
+        long stamp = lastStamp.updateAndGet(last -> Math.max(millis << 12, last + 1));
+        long msb = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long lsb = ThreadLocalRandom.current().nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+}
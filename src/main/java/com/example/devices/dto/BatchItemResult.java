@@ -0,0 +1,27 @@
+package com.example.devices.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one element of a batch request. {@code index} is the element's position in the
+ * request array and {@code status} the HTTP status the equivalent single-item call would return.
+ */
+public record BatchItemResult(
+        int index,
+        UUID id,
+        int status,
+        DeviceResponse device,
+        String error
+) {
+    public static BatchItemResult success(int index, int status, DeviceResponse device) {
+        return new BatchItemResult(index, device.id(), status, device, null);
+    }
+
+    public static BatchItemResult success(int index, int status, UUID id) {
+        return new BatchItemResult(index, id, status, null, null);
+    }
+
+    public static BatchItemResult failure(int index, UUID id, int status, String error) {
+        return new BatchItemResult(index, id, status, null, error);
+    }
+}
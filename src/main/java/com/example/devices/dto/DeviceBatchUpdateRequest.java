@@ -0,0 +1,17 @@
+package com.example.devices.dto;
+
+import com.example.devices.domain.DeviceState;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+public record DeviceBatchUpdateRequest(
+        @NotNull UUID id,
+        String name,
+        String brand,
+        DeviceState state
+) {
+    public DeviceUpdateRequest toUpdateRequest() {
+        return new DeviceUpdateRequest(name, brand, state);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.devices.dto;
+
+import java.util.List;
+
+/**
+ * One page of devices ordered by (createdAt, id). {@code nextCursor} is null on the last page.
+ */
+public record DevicePage(
+        List<DeviceResponse> items,
+        String nextCursor
+) {}
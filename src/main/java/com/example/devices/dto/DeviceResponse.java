@@ -9,5 +9,6 @@ public record DeviceResponse(
         String name,
         String brand,
         DeviceState state,
-        Instant createdAt
+        Instant createdAt,
+        Long version
 ) {}
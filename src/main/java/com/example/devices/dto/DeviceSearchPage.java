@@ -0,0 +1,14 @@
+package com.example.devices.dto;
+
+import java.util.List;
+
+/**
+ * One page of search results. {@code count} is the number of matching devices across all pages,
+ * null unless requested; {@code countEstimated} tells whether it came from planner statistics.
+ */
+public record DeviceSearchPage(
+        List<DeviceResponse> items,
+        String nextCursor,
+        Long count,
+        boolean countEstimated
+) {}
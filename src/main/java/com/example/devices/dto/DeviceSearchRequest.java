@@ -0,0 +1,19 @@
+package com.example.devices.dto;
+
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.DeviceState;
+
+import java.time.Instant;
+
+/**
+ * Filters of {@code GET /api/devices/search}; null fields don't filter. {@code createdFrom} is
+ * inclusive, {@code createdTo} exclusive.
+ */
+public record DeviceSearchRequest(
+        String brand,
+        BrandMatch brandMatch,
+        DeviceState state,
+        String namePrefix,
+        Instant createdFrom,
+        Instant createdTo
+) {}
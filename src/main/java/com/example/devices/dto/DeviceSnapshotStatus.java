@@ -0,0 +1,11 @@
+package com.example.devices.dto;
+
+import java.time.Instant;
+
+/**
+ * The in-memory device snapshot after a rebuild.
+ */
+public record DeviceSnapshotStatus(
+        int devices,
+        Instant builtAt
+) {}
@@ -0,0 +1,31 @@
+package com.example.devices.dto;
+
+import com.example.devices.domain.DeviceState;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Device counts: per state (every state present, zero included), the most common brands, and
+ * devices created per UTC day.
+ */
+public record DeviceStats(
+        long total,
+        Map<DeviceState, Long> byState,
+        List<BrandCount> topBrands,
+        List<DayCount> createdPerDay
+) {
+    public record StateCount(DeviceState state, long count) {}
+
+    /**
+     * Brands are grouped case-insensitively; {@code brand} is one of the spellings in use.
+     */
+    public record BrandCount(String brand, long count) {}
+
+    public record DayCount(LocalDate day, long count) {}
+
+    // Query-side shape of DayCount: the bucket comes back as a truncated timestamp.
+    public record BucketCount(Instant start, long count) {}
+}
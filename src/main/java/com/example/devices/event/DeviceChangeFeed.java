@@ -0,0 +1,194 @@
+package com.example.devices.event;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Committed device changes as Server-Sent Events.
+ * <p>
+ * Every committed {@link DeviceChangedEvent} gets the next sequence number and goes into a ring
+ * buffer of the last {@code bufferSize} changes; nothing is sent from the committing thread. Each
+ * subscriber is served by its own virtual thread that follows the buffer from its own position,
+ * so a slow consumer only delays itself. A consumer that reconnects with {@code Last-Event-ID}
+ * gets the changes it missed, as long as they are still in the buffer. When they aren't (it fell
+ * too far behind, or the id is from before a restart) it gets a {@code reset} event and continues
+ * with live changes; it should then reload what it needs.
+ */
+public class DeviceChangeFeed implements DisposableBean {
+
+    private record Change(long sequence, DeviceChangedEvent event) {}
+
+    // ids are "<epoch>-<sequence>", so ids handed out by an earlier run are recognized as unknown
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Change[] buffer;
+    private final Duration heartbeat;
+    private final Duration timeout;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private long last;
+    private volatile boolean closed;
+
+    public DeviceChangeFeed(int bufferSize, Duration heartbeat, Duration timeout) {
+        this.buffer = new Change[bufferSize];
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        lock.lock();
+        try {
+            last++;
+            buffer[slot(last)] = new Change(last, event);
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(timeout.toMillis()));
+    }
+
+    /**
+     * Streams changes after {@code lastEventId} (live changes only when null) to {@code emitter}.
+     */
+    public SseEmitter subscribe(String lastEventId, SseEmitter emitter) {
+        AtomicBoolean done = new AtomicBoolean();
+        emitter.onCompletion(() -> done.set(true));
+        emitter.onTimeout(() -> done.set(true));
+        emitter.onError(ex -> done.set(true));
+
+        Long resumeAfter = lastEventId == null ? null : sequenceOf(lastEventId);
+        long head = head();
+        boolean known = lastEventId == null || (resumeAfter != null && resumeAfter <= head);
+        long cursor = known && resumeAfter != null ? resumeAfter : head;
+        Thread.ofVirtual().name("device-changes-", subscribers.get()).start(() -> stream(emitter, cursor, !known, done));
+        return emitter;
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void stream(SseEmitter emitter, long cursor, boolean reset, AtomicBoolean done) {
+        subscribers.incrementAndGet();
+        try {
+            // commits the response headers right away instead of with the first change
+            emitter.send(SseEmitter.event().comment("connected"));
+            if (reset) {
+                sendReset(emitter);
+            }
+            while (!done.get() && !closed) {
+                List<Change> changes = changesAfter(cursor);
+                if (changes == null) {
+                    sendReset(emitter);
+                    cursor = head();
+                } else if (changes.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    for (Change change : changes) {
+                        emitter.send(SseEmitter.event()
+                                .id(epoch + "-" + change.sequence())
+                                .name(change.event().type().name())
+                                .data(change.event(), MediaType.APPLICATION_JSON));
+                    }
+                    cursor = changes.get(changes.size() - 1).sequence();
+                }
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException ex) {
+            // the client went away or the emitter timed out
+        } catch (RuntimeException ex) {
+            // ends the response instead of leaving the client waiting on a stream nobody feeds
+            emitter.completeWithError(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } finally {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Changes after {@code cursor}, waiting up to one heartbeat for the first; empty when none
+     * came, null when some of them have already been overwritten.
+     */
+    private List<Change> changesAfter(long cursor) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = heartbeat.toNanos();
+            while (last == cursor && !closed) {
+                if (nanos <= 0) {
+                    return List.of();
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (cursor < last - buffer.length) {
+                return null;
+            }
+            List<Change> changes = new ArrayList<>((int) (last - cursor));
+            for (long sequence = cursor + 1; sequence <= last; sequence++) {
+                changes.add(buffer[slot(sequence)]);
+            }
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long head() {
+        lock.lock();
+        try {
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Long sequenceOf(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            long sequence = Long.parseLong(eventId.substring(prefix.length()));
+            return sequence < 0 ? null : sequence;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % buffer.length);
+    }
+
+    private static void sendReset(SseEmitter emitter) throws IOException {
+        emitter.send(SseEmitter.event().name("reset")
+                .data(Map.of("message", "Changes were missed, reload the devices you track"), MediaType.APPLICATION_JSON));
+    }
+}
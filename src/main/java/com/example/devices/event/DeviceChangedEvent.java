@@ -0,0 +1,33 @@
+package com.example.devices.event;
+
+import com.example.devices.dto.DeviceResponse;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.UUID;
+
+/**
+ * Published for every device written through {@link com.example.devices.service.DeviceService} or
+ * the ingestion queue, inside the writing transaction. Listeners that must only see committed
+ * changes use {@code @TransactionalEventListener}.
+ *
+ * @param device   the device after the change; null for {@link Type#DELETED}
+ * @param previous the device before the change, as the writer read it; null for
+ *                 {@link Type#CREATED}, and for single updates and deletes unless the in-memory
+ *                 stats are on. Not part of the serialized change.
+ */
+public record DeviceChangedEvent(Type type, UUID id, DeviceResponse device, @JsonIgnore DeviceResponse previous) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static DeviceChangedEvent created(DeviceResponse device) {
+        return new DeviceChangedEvent(Type.CREATED, device.id(), device, null);
+    }
+
+    public static DeviceChangedEvent updated(DeviceResponse device, DeviceResponse previous) {
+        return new DeviceChangedEvent(Type.UPDATED, device.id(), device, previous);
+    }
+
+    public static DeviceChangedEvent deleted(UUID id, DeviceResponse previous) {
+        return new DeviceChangedEvent(Type.DELETED, id, null, previous);
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.devices.ingest;
+
+import com.example.devices.domain.Device;
+import com.example.devices.domain.UuidStrategy;
+import com.example.devices.dto.DeviceRequest;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.exception.TooManyRequestsException;
+import com.example.devices.mapper.DeviceMapper;
+import com.example.devices.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind creation of devices.
+ * <p>
+ * {@link #submit} assigns the id and creation time, appends the device to the {@link WriteAheadLog}
+ * and queues it; a single writer thread inserts queued devices in batches of up to
+ * {@code batchSize} per transaction. At most {@code capacity} accepted devices may be waiting for
+ * the database; past that, submissions are rejected. Devices still in the log at startup (the
+ * previous run crashed or timed out draining) are inserted before new ones are accepted.
+ * <p>
+ * Runs in a phase that stops after the web server, so requests already accepted are drained
+ * before the application context closes.
+ */
+public class DeviceIngestQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceIngestQueue.class);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private record Entry(DeviceResponse device, long segment) {}
+
+    private final WriteAheadLog wal;
+    private final DeviceRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final UuidStrategy ids;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration shutdownTimeout;
+    // one permit per device accepted but not yet committed
+    private final Semaphore slots;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile boolean running;
+    private Thread writer;
+
+    public DeviceIngestQueue(WriteAheadLog wal, DeviceRepository repository, TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher events, ObjectMapper objectMapper, UuidStrategy ids, int capacity,
+                             int batchSize, Duration pollInterval, Duration shutdownTimeout) {
+        this.wal = wal;
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.events = events;
+        this.objectMapper = objectMapper;
+        this.ids = ids;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Accepts a device for asynchronous insertion. Once this returns, the device is in the
+     * write-ahead log and will be stored even if the process dies before the writer gets to it.
+     *
+     * @return the device as it will be stored; its version is null until then
+     * @throws TooManyRequestsException if {@code capacity} devices are already waiting
+     */
+    public DeviceResponse submit(DeviceRequest request) {
+        if (!running || !slots.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyRequestsException("Ingestion queue is full, retry later");
+        }
+        DeviceResponse device = new DeviceResponse(ids.next(), request.name(), request.brand(),
+                request.state(), Device.now(), null);
+        try {
+            long segment = wal.append(objectMapper.writeValueAsBytes(device));
+            queue.add(new Entry(device, segment));
+        } catch (IOException ex) {
+            slots.release();
+            throw new UncheckedIOException(ex);
+        }
+        accepted.increment();
+        return device;
+    }
+
+    @Override
+    public void start() {
+        replay();
+        running = true;
+        writer = Thread.ofPlatform().name("device-ingest-writer").start(this::drain);
+    }
+
+    /**
+     * Stops accepting devices and waits up to {@code shutdownTimeout} for the queue to drain.
+     * Whatever is left stays in the write-ahead log for the next start.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join(shutdownTimeout);
+            if (writer.isAlive()) {
+                log.warn("Ingestion queue not drained within {}, {} devices left for replay", shutdownTimeout, queue.size());
+                writer.interrupt();
+                writer.join();
+            }
+            wal.close();
+        } catch (InterruptedException ex) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // after the web server (DEFAULT_PHASE - 2048) on the way down
+        return DEFAULT_PHASE - 4096;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDepth() {
+        return capacity - slots.availablePermits();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry first = queue.poll(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!store(batch.stream().map(Entry::device).toList(), false)) {
+                    return;
+                }
+                release(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void release(List<Entry> batch) {
+        Map<Long, Long> perSegment = batch.stream()
+                .collect(Collectors.groupingBy(Entry::segment, Collectors.counting()));
+        try {
+            for (Map.Entry<Long, Long> segment : perSegment.entrySet()) {
+                wal.release(segment.getKey(), segment.getValue().intValue());
+            }
+        } catch (IOException ex) {
+            // the devices are stored; a segment that outlives them is replayed harmlessly
+            log.warn("Could not delete write-ahead log segment", ex);
+        }
+        slots.release(batch.size());
+    }
+
+    /**
+     * Inserts the devices, retrying with backoff until it succeeds or the writer is interrupted.
+     * Retries skip devices that already exist, in case a failed attempt did commit; with
+     * {@code skipExisting} so does the first attempt. Devices the
+     * database refuses outright are logged and dropped so they don't block the rest.
+     */
+    private boolean store(List<DeviceResponse> devices, boolean skipExisting) {
+        boolean retry = skipExisting;
+        long backoff = 100;
+        while (true) {
+            try {
+                insert(devices, retry);
+                return true;
+            } catch (DataIntegrityViolationException ex) {
+                if (devices.size() == 1) {
+                    log.error("Discarding device {} rejected by the database", devices.get(0).id(), ex);
+                    discarded.increment();
+                    return true;
+                }
+                for (DeviceResponse device : devices) {
+                    if (!store(List.of(device), true)) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (RuntimeException ex) {
+                log.warn("Could not store {} ingested devices, retrying in {} ms", devices.size(), backoff, ex);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF.toMillis());
+                retry = true;
+            }
+        }
+    }
+
+    private void insert(List<DeviceResponse> devices, boolean skipExisting) {
+        Integer inserted = transactionTemplate.execute(status -> {
+            List<DeviceResponse> pending = devices;
+            if (skipExisting) {
+                Set<UUID> existing = repository.findAllById(devices.stream().map(DeviceResponse::id).toList())
+                        .stream()
+                        .map(Device::getId)
+                        .collect(Collectors.toSet());
+                pending = devices.stream().filter(device -> !existing.contains(device.id())).toList();
+            }
+            // publish the stored rows: unlike the accepted ones they carry their version
+            repository.saveAll(pending.stream().map(DeviceIngestQueue::toEntity).toList())
+                    .forEach(device -> events.publishEvent(DeviceChangedEvent.created(DeviceMapper.toResponse(device))));
+            return pending.size();
+        });
+        written.add(inserted);
+    }
+
+    // Inserts what a previous run accepted but didn't store; some of it may already be in the table.
+    private void replay() {
+        for (Path segment : wal.leftoverSegments()) {
+            List<DeviceResponse> devices = new ArrayList<>();
+            try {
+                for (String line : Files.readAllLines(segment)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        devices.add(objectMapper.readValue(line, DeviceResponse.class));
+                    } catch (IOException ex) {
+                        // a torn last write from a crash; the client never got its 202
+                        log.warn("Skipping unreadable record in {}", segment.getFileName());
+                    }
+                }
+                for (int from = 0; from < devices.size(); from += batchSize) {
+                    List<DeviceResponse> chunk = devices.subList(from, Math.min(from + batchSize, devices.size()));
+                    if (!store(chunk, true)) {
+                        throw new IllegalStateException("Interrupted while replaying " + segment);
+                    }
+                }
+                Files.delete(segment);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            log.info("Replayed {} devices from {}", devices.size(), segment.getFileName());
+        }
+    }
+
+    private static Device toEntity(DeviceResponse device) {
+        return Device.builder()
+                .id(device.id())
+                .name(device.name())
+                .brand(device.brand())
+                .state(device.state())
+                .createdAt(device.createdAt())
+                .build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.devices.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, newline-delimited record log split into numbered segment files.
+ * <p>
+ * {@link #append} returns the segment a record went to; once every record of a segment has been
+ * {@link #release released} and the log has moved on to a newer segment, the file is deleted.
+ * Segments found on disk at startup belong to a previous run and are returned by
+ * {@link #leftoverSegments()} for replay.
+ * <p>
+ * With fsync, records are forced to disk in groups: an append writes under the log's lock, then
+ * waits for a force that covers it. One caller forces for everyone that has written by then, and
+ * those queued behind it find their records already forced, so concurrent appends share one fsync
+ * instead of taking turns with one each.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String PREFIX = "ingest-";
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    // a lock rather than synchronized: appends come from virtual threads, which must not pin
+    private final ReentrantLock lock = new ReentrantLock();
+    // held while forcing; taken before lock, never while holding it
+    private final ReentrantLock forcing = new ReentrantLock();
+    private final Map<Long, Integer> unreleased = new HashMap<>();
+    private final List<Path> leftovers;
+    // records appended so far, and how many of them are known to be on disk
+    private final AtomicLong forced = new AtomicLong();
+    private long appended;
+    private long segment;
+    private FileChannel channel;
+
+    public WriteAheadLog(Path directory, long segmentBytes, boolean fsync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        try (Stream<Path> files = Files.list(directory)) {
+            this.leftovers = files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                            && file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(segmentOf(a), segmentOf(b)))
+                    .toList();
+        }
+        this.segment = leftovers.isEmpty() ? 1 : segmentOf(leftovers.get(leftovers.size() - 1)) + 1;
+        this.channel = open(segment);
+    }
+
+    /**
+     * Segments written by a previous run, oldest first. Delete them once their records are stored.
+     */
+    public List<Path> leftoverSegments() {
+        return leftovers;
+    }
+
+    /**
+     * Appends one record (which must not contain a newline) and, with fsync enabled, returns only
+     * once it is on disk.
+     *
+     * @return the segment the record was written to
+     */
+    public long append(byte[] record) throws IOException {
+        long written;
+        long sequence;
+        lock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(record.length + 1).put(record).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written = segment;
+            sequence = ++appended;
+            unreleased.merge(written, 1, Integer::sum);
+            if (channel.position() >= segmentBytes) {
+                rotate();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (fsync) {
+            awaitForced(sequence);
+        }
+        return written;
+    }
+
+    /**
+     * Marks {@code count} records of {@code segment} as stored elsewhere.
+     */
+    public void release(long segment, int count) throws IOException {
+        lock.lock();
+        try {
+            int left = unreleased.merge(segment, -count, Integer::sum);
+            if (left <= 0) {
+                unreleased.remove(segment);
+                if (segment != this.segment) {
+                    Files.deleteIfExists(path(segment));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            if (!unreleased.containsKey(segment)) {
+                Files.deleteIfExists(path(segment));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Whoever gets to force first forces everything appended so far; the rest of the group
+    // then finds its records covered. The force itself runs outside the log's lock, so appends
+    // continue and form the next group meanwhile.
+    private void awaitForced(long sequence) throws IOException {
+        forcing.lock();
+        try {
+            if (forced.get() >= sequence) {
+                return;
+            }
+            FileChannel current;
+            long target;
+            lock.lock();
+            try {
+                current = channel;
+                target = appended;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                current.force(false);
+            } catch (ClosedByInterruptException ex) {
+                throw ex;
+            } catch (ClosedChannelException ex) {
+                // rotated or closed meanwhile, which forces the channel first
+            }
+            forced.accumulateAndGet(target, Math::max);
+        } finally {
+            forcing.unlock();
+        }
+    }
+
+    // Called under lock; a segment is forced before it is closed, so no appended record is lost.
+    private void closeChannel() throws IOException {
+        if (fsync && channel.isOpen()) {
+            channel.force(false);
+            forced.accumulateAndGet(appended, Math::max);
+        }
+        channel.close();
+    }
+
+    private void rotate() throws IOException {
+        closeChannel();
+        long previous = segment;
+        channel = open(++segment);
+        if (!unreleased.containsKey(previous)) {
+            Files.deleteIfExists(path(previous));
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(PREFIX + String.format("%019d", segment) + SUFFIX);
+    }
+
+    private static long segmentOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.devices.outbox;
+
+import com.example.devices.event.DeviceChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every {@link DeviceChangedEvent} in {@code device_outbox} as part of the transaction
+ * that published it. Events are collected while the transaction runs and inserted with one JDBC
+ * batch just before it commits, so a rolled-back change never reaches the outbox and a committed
+ * one always does.
+ */
+public class DeviceOutboxWriter {
+
+    private static final String INSERT =
+            "insert into device_outbox (device_id, type, payload, created_at) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public DeviceOutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(event));
+            return;
+        }
+        pending().add(event);
+    }
+
+    // The current transaction's events; the first event of a transaction registers the flush.
+    @SuppressWarnings("unchecked")
+    private List<DeviceChangedEvent> pending() {
+        List<DeviceChangedEvent> pending = (List<DeviceChangedEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<DeviceChangedEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    insert(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DeviceOutboxWriter.this);
+                }
+            });
+            pending = events;
+        }
+        return pending;
+    }
+
+    private void insert(List<DeviceChangedEvent> events) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (DeviceChangedEvent event : events) {
+            try {
+                rows.add(new Object[]{event.id().toString(), event.type().name(), objectMapper.writeValueAsString(event), now});
+            } catch (JsonProcessingException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.devices.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One row of {@code device_outbox}. {@code payload} is the {@link com.example.devices.event.DeviceChangedEvent}
+ * as JSON; {@code id} increases in commit order within one writer.
+ */
+public record OutboxMessage(
+        long id,
+        UUID deviceId,
+        String type,
+        @JsonRawValue String payload,
+        Instant createdAt
+) {}
@@ -0,0 +1,173 @@
+package com.example.devices.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves {@code device_outbox} rows to an {@link OutboxSink} on background threads, so publishing
+ * never runs on a request.
+ * <p>
+ * Each of the {@code parallelism} workers repeatedly locks the oldest {@code batchSize} rows
+ * nobody else has locked ({@code FOR UPDATE SKIP LOCKED}, supported by PostgreSQL and MySQL 8),
+ * publishes them and deletes them in the same transaction. Delivery is at least once: a batch whose
+ * delete doesn't commit is published again. With more than one worker, batches may reach the sink
+ * out of order.
+ */
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private static final String SELECT = """
+            select id, device_id, type, payload, created_at
+            from device_outbox
+            order by id
+            limit ?
+            for update skip locked
+            """;
+    private static final String DELETE = "delete from device_outbox where id in (:ids)";
+
+    private static final RowMapper<OutboxMessage> ROW_MAPPER = (rs, rowNum) -> new OutboxMessage(
+            rs.getLong("id"),
+            UUID.fromString(rs.getString("device_id").trim()),
+            rs.getString("type"),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final int parallelism;
+    private final Duration pollInterval;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // age of the oldest message in the latest batch; 0 once a poll finds the outbox empty
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    // workers wait on this between polls, so stop() doesn't have to interrupt them mid-publish
+    private CountDownLatch stopping;
+    private volatile boolean running;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, OutboxSink sink,
+                       int batchSize, int parallelism, Duration pollInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Publishes and deletes one batch.
+     *
+     * @return the number of messages published
+     */
+    public int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<OutboxMessage> batch = jdbcTemplate.query(SELECT, ROW_MAPPER, batchSize);
+            if (batch.isEmpty()) {
+                lagMillis.set(0);
+                return 0;
+            }
+            lagMillis.set(Duration.between(batch.get(0).createdAt(), Instant.now()).toMillis());
+            try {
+                sink.publish(batch);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Outbox sink failed", ex);
+            }
+            namedJdbcTemplate.update(DELETE, Map.of("ids", batch.stream().map(OutboxMessage::id).toList()));
+            return batch.size();
+        });
+        published.add(relayed);
+        return relayed;
+    }
+
+    @Override
+    public void start() {
+        stopping = new CountDownLatch(1);
+        running = true;
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(Thread.ofPlatform().name("device-outbox-relay-" + i).daemon().start(this::work));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        stopping.countDown();
+        for (Thread worker : workers) {
+            try {
+                if (!worker.join(Duration.ofSeconds(10))) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getLagSeconds() {
+        return lagMillis.get() / 1000.0;
+    }
+
+    private void work() {
+        long backoff = pollInterval.toMillis();
+        try {
+            while (running) {
+                try {
+                    if (relayBatch() < batchSize && stopping.await(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    backoff = pollInterval.toMillis();
+                } catch (RuntimeException ex) {
+                    if (!running) {
+                        return;
+                    }
+                    failures.increment();
+                    log.warn("Outbox relay failed, retrying in {} ms", backoff, ex);
+                    if (stopping.await(backoff, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF.toMillis());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
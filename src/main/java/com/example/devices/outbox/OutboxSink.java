@@ -0,0 +1,13 @@
+package com.example.devices.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of relayed outbox messages. A batch counts as delivered when {@link #publish}
+ * returns; if it throws, the same messages are offered again later, so sinks must tolerate
+ * duplicates (the message id identifies them).
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,185 @@
+package com.example.devices.ratelimit;
+
+import com.example.devices.config.RateLimitProperties;
+import com.example.devices.exception.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Admits {@code /api/devices} requests against two token buckets per client, one for cheap and
+ * one for expensive requests (see {@link RateLimitProperties}), and refuses expensive requests
+ * outright while the database is overloaded: too many threads waiting for a pooled connection, or
+ * a moving average of request latency above the limit. Refused requests get 429 with
+ * {@code Retry-After} before they reach the controller or the database.
+ * <p>
+ * Refusals count as instant requests in the latency average, so it decays while expensive
+ * requests are shed and a few are let through again to probe whether the overload has passed.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum Cost { CHEAP, EXPENSIVE }
+
+    private static final String API = "/api/devices";
+    // first path segment after /api/devices of requests that read or write many rows
+    private static final Set<String> EXPENSIVE_SEGMENTS = Set.of("page", "search", "stats", "brand", "state", "batch", "snapshot");
+
+    private final RateLimitProperties properties;
+    private final IntSupplier pendingConnections;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Buckets> clients;
+    // API keys seen per remote address, at most maxKeysPerAddress each
+    private final Cache<String, Set<String>> keysByAddress;
+    // moving average of request latency in nanoseconds, each new sample weighted 1/8
+    private final AtomicLong latency = new AtomicLong();
+
+    public RateLimitFilter(RateLimitProperties properties, IntSupplier pendingConnections,
+                           ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.pendingConnections = pendingConnections;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        // an idle client's buckets are full again after this long; forgetting them changes nothing
+        double refill = Math.max(properties.cheapBurst() / properties.cheapPerSecond(),
+                properties.expensiveBurst() / properties.expensivePerSecond());
+        Duration idle = Duration.ofMillis((long) Math.ceil(refill * 1000));
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(idle)
+                .build();
+        this.keysByAddress = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(idle)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        Cost cost = classify(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+        if (cost == Cost.EXPENSIVE && overloaded()) {
+            latency.accumulateAndGet(0, RateLimitFilter::average);
+            reject(request, response, cost, "overload", TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        Buckets buckets = clients.get(clientKey(request), key -> new Buckets(properties, start));
+        long wait = (cost == Cost.EXPENSIVE ? buckets.expensive : buckets.cheap).tryAcquire(start);
+        if (wait > 0) {
+            reject(request, response, cost, "rate_limit", wait);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // streamed responses finish on another thread; their latency isn't the database's
+            if (!request.isAsyncStarted()) {
+                latency.accumulateAndGet(System.nanoTime() - start, RateLimitFilter::average);
+            }
+        }
+    }
+
+    static Cost classify(String method, String path) {
+        if (path.equals(API) || path.equals(API + "/")) {
+            return HttpMethod.GET.matches(method) ? Cost.EXPENSIVE : Cost.CHEAP;
+        }
+        String rest = path.startsWith(API + "/") ? path.substring(API.length() + 1) : "";
+        int slash = rest.indexOf('/');
+        String segment = slash < 0 ? rest : rest.substring(0, slash);
+        return EXPENSIVE_SEGMENTS.contains(segment) ? Cost.EXPENSIVE : Cost.CHEAP;
+    }
+
+    public long getClientCount() {
+        return clients.estimatedSize();
+    }
+
+    public double getLatencySeconds() {
+        return latency.get() / 1e9;
+    }
+
+    private boolean overloaded() {
+        int maxPending = properties.shedPendingConnections();
+        if (maxPending > 0 && pendingConnections.getAsInt() > maxPending) {
+            return true;
+        }
+        long maxLatency = properties.shedLatency().toNanos();
+        return maxLatency > 0 && latency.get() > maxLatency;
+    }
+
+    // Anyone can send any key, so a key only separates clients behind the same address, and only
+    // the first few keys from an address get buckets of their own.
+    private String clientKey(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String apiKey = request.getHeader(properties.apiKeyHeader());
+        if (apiKey == null || apiKey.isBlank()) {
+            return "ip:" + address;
+        }
+        Set<String> keys = keysByAddress.get(address, a -> new HashSet<>());
+        synchronized (keys) {
+            if (!keys.contains(apiKey)) {
+                if (keys.size() >= properties.maxKeysPerAddress()) {
+                    return "ip:" + address;
+                }
+                keys.add(apiKey);
+            }
+        }
+        return "ip:" + address + " key:" + apiKey;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, Cost cost, String reason, long waitNanos)
+            throws IOException {
+        meterRegistry.counter("devices.ratelimit.rejected",
+                "reason", reason,
+                "cost", cost.name().toLowerCase(Locale.ROOT)
+        ).increment();
+        long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        String message = reason.equals("overload")
+                ? "Server is overloaded, retry later"
+                : "Too many requests, retry in " + retryAfter + "s";
+        ApiError error = ApiError.of(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                message,
+                "uri=" + request.getRequestURI()
+        );
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static long average(long average, long sample) {
+        return average + (sample - average) / 8;
+    }
+
+    private static final class Buckets {
+
+        final TokenBucket cheap;
+        final TokenBucket expensive;
+
+        Buckets(RateLimitProperties properties, long now) {
+            this.cheap = new TokenBucket(properties.cheapPerSecond(), properties.cheapBurst(), now);
+            this.expensive = new TokenBucket(properties.expensivePerSecond(), properties.expensiveBurst(), now);
+        }
+    }
+}
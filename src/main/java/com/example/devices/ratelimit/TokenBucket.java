@@ -0,0 +1,45 @@
+package com.example.devices.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp (the generic cell rate algorithm): the time at which
+ * the bucket would be full again. Taking a token pushes it one refill interval further; a token
+ * is available while it stays within {@code burst} intervals of now. One CAS per request, no lock.
+ */
+public final class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    // nanoTime at which the bucket is full again
+    private final AtomicLong fullAt;
+
+    /**
+     * @param perSecond tokens added per second
+     * @param burst     tokens the bucket holds; a new bucket starts full
+     * @param now       current {@link System#nanoTime()}
+     */
+    public TokenBucket(double perSecond, int burst, long now) {
+        this.interval = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.tolerance = interval * Math.max(1, burst);
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is available. Returns 0 on success, otherwise the nanoseconds until
+     * one will be.
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long ahead = next - now;
+            if (ahead > tolerance) {
+                return ahead - tolerance;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
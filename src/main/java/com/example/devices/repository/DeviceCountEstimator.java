@@ -0,0 +1,105 @@
+package com.example.devices.repository;
+
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.Device;
+import com.example.devices.dto.DeviceSearchRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row-count estimates for device searches taken from the query planner: {@code EXPLAIN} reads
+ * table statistics instead of visiting every matching row, so the cost doesn't grow with the
+ * result. The estimate can be off by the usual planner margins.
+ */
+@Repository
+public class DeviceCountEstimator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private volatile DatabaseDriver driver;
+
+    public DeviceCountEstimator(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The planner's estimate of the devices matching {@code search}, or null when the database
+     * doesn't offer one this class understands (anything but PostgreSQL and MySQL).
+     */
+    public Long estimate(DeviceSearchRequest search) {
+        DatabaseDriver database = driver();
+        if (database != DatabaseDriver.POSTGRESQL && database != DatabaseDriver.MYSQL) {
+            return null;
+        }
+
+        // same predicates as DeviceSpecifications.matching; both databases escape LIKE with '\'
+        StringBuilder sql = new StringBuilder("select id from devices where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (search.brand() != null) {
+            String key = Device.normalizeBrand(search.brand());
+            BrandMatch match = search.brandMatch() == null ? BrandMatch.EXACT : search.brandMatch();
+            switch (match) {
+                case EXACT -> {
+                    sql.append(" and brand_key = ?");
+                    args.add(key);
+                }
+                case PREFIX -> {
+                    sql.append(" and brand_key like ?");
+                    args.add(DeviceSpecifications.escapeLike(key) + "%");
+                }
+                case CONTAINS -> {
+                    sql.append(" and brand_key like ?");
+                    args.add("%" + DeviceSpecifications.escapeLike(key) + "%");
+                }
+            }
+        }
+        if (search.state() != null) {
+            sql.append(" and state = ?");
+            args.add(search.state().name());
+        }
+        if (search.namePrefix() != null) {
+            sql.append(" and name like ?");
+            args.add(DeviceSpecifications.escapeLike(search.namePrefix()) + "%");
+        }
+        if (search.createdFrom() != null) {
+            sql.append(" and created_at >= ?");
+            args.add(Timestamp.from(search.createdFrom()));
+        }
+        if (search.createdTo() != null) {
+            sql.append(" and created_at < ?");
+            args.add(Timestamp.from(search.createdTo()));
+        }
+
+        if (database == DatabaseDriver.POSTGRESQL) {
+            String plan = jdbcTemplate.queryForObject("explain (format json) " + sql, String.class, args.toArray());
+            try {
+                return Math.round(objectMapper.readTree(plan).get(0).get("Plan").get("Plan Rows").asDouble());
+            } catch (JsonProcessingException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        // MySQL: rows the access path reads, times the share expected to pass the remaining conditions
+        return jdbcTemplate.query("explain " + sql, rs -> {
+            rs.next();
+            return Math.round(rs.getLong("rows") * rs.getDouble("filtered") / 100);
+        }, args.toArray());
+    }
+
+    private DatabaseDriver driver() {
+        if (driver == null) {
+            driver = jdbcTemplate.execute((ConnectionCallback<DatabaseDriver>) connection ->
+                    DatabaseDriver.fromJdbcUrl(connection.getMetaData().getURL()));
+        }
+        return driver;
+    }
+}
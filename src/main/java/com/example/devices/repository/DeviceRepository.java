@@ -2,12 +2,147 @@ package com.example.devices.repository;
 
 import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceStats;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface DeviceRepository extends JpaRepository<Device, UUID> {
-    List<Device> findByBrandIgnoreCaseContaining(String brand);
-    List<Device> findByState(DeviceState state);
+public interface DeviceRepository extends JpaRepository<Device, UUID>, JpaSpecificationExecutor<Device> {
+    // State and brand lookups, brand ones on the normalized column (callers pass an already
+    // normalized term). With a DTO type the query selects a constructor expression, so rows
+    // become DTOs directly instead of managed entities that are copied afterwards. They are called
+    // outside a transaction too; they then open their own read-only one, so they still go to a
+    // replica and through the bulkhead.
+    @Transactional(readOnly = true)
+    <T> List<T> findByState(DeviceState state, Class<T> type);
+    @Transactional(readOnly = true)
+    <T> List<T> findByBrandKey(String brandKey, Class<T> type);
+    @Transactional(readOnly = true)
+    <T> List<T> findByBrandKeyStartingWith(String prefix, Class<T> type);
+    @Transactional(readOnly = true)
+    <T> List<T> findByBrandKeyContaining(String fragment, Class<T> type);
+
+    @Query("select d from Device d order by d.createdAt, d.id")
+    List<Device> findFirstPage(Limit limit);
+
+    @Query("""
+            select d from Device d
+            where d.createdAt > :createdAt or (d.createdAt = :createdAt and d.id > :id)
+            order by d.createdAt, d.id
+            """)
+    List<Device> findPageAfter(Instant createdAt, UUID id, Limit limit);
+
+    /**
+     * Applies the non-null fields and bumps the version in one statement. With {@code guardInUse}
+     * the row is skipped while it is IN_USE; with a {@code version}, unless it is still at that
+     * version. Returns the number of rows changed, 0 or 1.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Device d
+            set d.name = coalesce(:name, d.name),
+                d.brand = coalesce(:brand, d.brand),
+                d.brandKey = coalesce(:brandKey, d.brandKey),
+                d.state = coalesce(:state, d.state),
+                d.version = d.version + 1
+            where d.id = :id
+              and (:guardInUse = false or d.state <> com.example.devices.domain.DeviceState.IN_USE)
+              and (:version is null or d.version = :version)
+            """)
+    int updateGuarded(UUID id, String name, String brand, String brandKey, DeviceState state,
+                      boolean guardInUse, Long version);
+
+    /**
+     * Deletes the device unless it is IN_USE or, with a {@code version}, no longer at that version.
+     * Returns the number of rows deleted, 0 or 1.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            delete from Device d
+            where d.id = :id
+              and d.state <> com.example.devices.domain.DeviceState.IN_USE
+              and (:version is null or d.version = :version)
+            """)
+    int deleteGuarded(UUID id, Long version);
+
+    /**
+     * The device, locked against other writers until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Device d where d.id = :id")
+    Optional<Device> findByIdForUpdate(UUID id);
+
+    /**
+     * The listed devices, locked against other writers until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Device d where d.id in :ids")
+    List<Device> findAllByIdForUpdate(Collection<UUID> ids);
+
+    /**
+     * Deletes the listed devices that are not IN_USE in one statement. Returns the number of rows
+     * deleted; ids it skipped are still in the table afterwards.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            delete from Device d
+            where d.id in :ids
+              and d.state <> com.example.devices.domain.DeviceState.IN_USE
+            """)
+    int deleteAllGuarded(Collection<UUID> ids);
+
+    // Aggregates for GET /api/devices/stats, grouped in the database.
+    @Query("select new com.example.devices.dto.DeviceStats$StateCount(d.state, count(d)) from Device d group by d.state")
+    List<DeviceStats.StateCount> countByState();
+
+    @Query("""
+            select new com.example.devices.dto.DeviceStats$BrandCount(min(d.brand), count(d))
+            from Device d
+            group by d.brandKey
+            order by count(d) desc, d.brandKey
+            """)
+    List<DeviceStats.BrandCount> countByBrand(Limit limit);
+
+    /**
+     * Devices created per day since {@code since} (all days when null), oldest first.
+     */
+    @Query("""
+            select new com.example.devices.dto.DeviceStats$BucketCount(truncate(d.createdAt, day), count(d))
+            from Device d
+            where :since is null or d.createdAt >= :since
+            group by truncate(d.createdAt, day)
+            order by truncate(d.createdAt, day)
+            """)
+    List<DeviceStats.BucketCount> countByDay(Instant since);
+
+    /**
+     * Forward-only cursor over every device. Rows are projected straight into DTOs so nothing
+     * accumulates in the persistence context; the caller must close the stream inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.example.devices.dto.DeviceResponse(d.id, d.name, d.brand, d.state, d.createdAt, d.version)
+            from Device d
+            order by d.createdAt, d.id
+            """)
+    Stream<DeviceResponse> streamAll();
 }
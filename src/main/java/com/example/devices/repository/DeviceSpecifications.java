@@ -0,0 +1,76 @@
+package com.example.devices.repository;
+
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceSearchRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Criteria for {@code GET /api/devices/search}. Each filter becomes one predicate of a single
+ * query, so the planner can pick the most selective index ({@code (brand_key, created_at, id)},
+ * {@code (state, created_at)} or {@code (created_at, id)}).
+ */
+public final class DeviceSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private DeviceSpecifications() {
+    }
+
+    public static Specification<Device> matching(DeviceSearchRequest search) {
+        Specification<Device> spec = Specification.where(null);
+        if (search.brand() != null) {
+            spec = spec.and(brand(Device.normalizeBrand(search.brand()),
+                    search.brandMatch() == null ? BrandMatch.EXACT : search.brandMatch()));
+        }
+        if (search.state() != null) {
+            spec = spec.and(state(search.state()));
+        }
+        if (search.namePrefix() != null) {
+            spec = spec.and(namePrefix(search.namePrefix()));
+        }
+        if (search.createdFrom() != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), search.createdFrom()));
+        }
+        if (search.createdTo() != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThan(root.get("createdAt"), search.createdTo()));
+        }
+        return spec;
+    }
+
+    public static Specification<Device> brand(String brandKey, BrandMatch match) {
+        return (root, query, cb) -> switch (match) {
+            case EXACT -> cb.equal(root.get("brandKey"), brandKey);
+            case PREFIX -> cb.like(root.get("brandKey"), escapeLike(brandKey) + "%", ESCAPE);
+            case CONTAINS -> cb.like(root.get("brandKey"), "%" + escapeLike(brandKey) + "%", ESCAPE);
+        };
+    }
+
+    public static Specification<Device> state(DeviceState state) {
+        return (root, query, cb) -> cb.equal(root.get("state"), state);
+    }
+
+    public static Specification<Device> namePrefix(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("name"), escapeLike(prefix) + "%", ESCAPE);
+    }
+
+    /**
+     * Devices after the keyset position ({@code createdAt}, {@code id}) in the given direction.
+     */
+    public static Specification<Device> after(Instant createdAt, UUID id, Sort.Direction direction) {
+        return (root, query, cb) -> direction.isAscending()
+                ? cb.or(cb.greaterThan(root.get("createdAt"), createdAt),
+                        cb.and(cb.equal(root.get("createdAt"), createdAt), cb.greaterThan(root.get("id"), id)))
+                : cb.or(cb.lessThan(root.get("createdAt"), createdAt),
+                        cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
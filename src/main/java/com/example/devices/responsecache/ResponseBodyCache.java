@@ -0,0 +1,179 @@
+package com.example.devices.responsecache;
+
+import com.example.devices.coalesce.RequestCoalescer;
+import com.example.devices.event.DeviceChangedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded list response bodies, so repeated state and brand queries skip both the query and the
+ * JSON or CBOR encoding. Bodies of at least the gzip threshold are kept gzipped as well.
+ * <p>
+ * Entries belong to the generation they were loaded in, and every committed device change starts
+ * a new one, so a body is never served after a change it might not include. To keep that true a
+ * load reads the generation before it queries and never joins a lookup that started earlier
+ * ({@link RequestCoalescer#uncoalesced}); concurrent misses for the same body share one load.
+ * <p>
+ * Changes this instance doesn't publish (other instances, direct SQL) are not seen; the ttl
+ * bounds how long bodies missing them are served.
+ */
+public class ResponseBodyCache {
+
+    private final AsyncCache<Key, Body> bodies;
+    private final AtomicLong generation = new AtomicLong();
+    private final long gzipMinSize;
+
+    public ResponseBodyCache(long maximumBytes, Duration ttl, long gzipMinSize) {
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, Body body) -> body.size())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    /**
+     * The body for {@code query} in {@code contentType}, encoded by {@code encoder} if this
+     * generation has none yet. Exceptions from the encoder reach every caller waiting for it and
+     * leave nothing cached.
+     */
+    public Body get(String query, MediaType contentType, Supplier<byte[]> encoder) {
+        Key key = new Key(query, contentType, generation.get());
+        CompletableFuture<Body> load = new CompletableFuture<>();
+        CompletableFuture<Body> body = bodies.get(key, (k, executor) -> load);
+        if (body != load) {
+            try {
+                return body.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+        try {
+            byte[] bytes = RequestCoalescer.uncoalesced(encoder);
+            Body loaded = new Body(bytes, bytes.length >= gzipMinSize ? gzip(bytes) : null);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // after the snapshot has applied the change, so a load of the new generation sees it
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        long current = generation.incrementAndGet();
+        bodies.asMap().keySet().removeIf(key -> key.generation() < current);
+    }
+
+    public AsyncCache<?, ?> getNativeCache() {
+        return bodies;
+    }
+
+    /**
+     * Bytes of all bodies held, gzipped copies included.
+     */
+    public long getBytes() {
+        return bodies.synchronous().policy().eviction().orElseThrow().weightedSize().orElse(0);
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header admits gzip.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // Compressed once per load and then sent many times, so the strongest level is worth it.
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new BestGzipOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.size() < bytes.length ? out.toByteArray() : null;
+    }
+
+    private record Key(String query, MediaType contentType, long generation) {}
+
+    /**
+     * One encoded body and, when it was worth compressing, its gzipped copy. The ETag is a hash of
+     * the content, so it stays the same across generations while the devices listed don't change.
+     */
+    public static final class Body {
+
+        private final byte[] identity;
+        private final byte[] gzipped;
+        private final String hash;
+
+        Body(byte[] identity, byte[] gzipped) {
+            this.identity = identity;
+            this.gzipped = gzipped;
+            this.hash = DigestUtils.md5DigestAsHex(identity);
+        }
+
+        public boolean hasGzip() {
+            return gzipped != null;
+        }
+
+        public byte[] bytes(boolean gzip) {
+            return gzip ? gzipped : identity;
+        }
+
+        /**
+         * Strong ETag of the identity or gzipped bytes; the two differ, as their bytes do.
+         */
+        public String etag(boolean gzip) {
+            return "\"" + hash + (gzip ? "-gzip" : "") + "\"";
+        }
+
+        int size() {
+            return identity.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    private static final class BestGzipOutputStream extends GZIPOutputStream {
+
+        BestGzipOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.devices.service;
+
+import com.example.devices.domain.CountMode;
+import com.example.devices.domain.Device;
+import com.example.devices.dto.DeviceSearchPage;
+import com.example.devices.dto.DeviceSearchRequest;
+import com.example.devices.exception.BadRequestException;
+import com.example.devices.mapper.DeviceMapper;
+import com.example.devices.repository.DeviceCountEstimator;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.repository.DeviceSpecifications;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class DeviceSearchService {
+
+    private final DeviceRepository repository;
+    private final DeviceCountEstimator estimator;
+
+    public DeviceSearchService(DeviceRepository repository, DeviceCountEstimator estimator) {
+        this.repository = repository;
+        this.estimator = estimator;
+    }
+
+    /**
+     * One page of the devices matching every given filter, ordered by (createdAt, id) in
+     * {@code direction}. Pages continue from {@code cursor} like {@link DeviceService#findPage},
+     * so deep pages cost the same as the first.
+     */
+    @Transactional(readOnly = true)
+    public DeviceSearchPage search(DeviceSearchRequest search, Sort.Direction direction, int limit, String cursor,
+                                   CountMode count) {
+        if (limit < 1 || limit > DeviceService.MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + DeviceService.MAX_PAGE_SIZE);
+        }
+        if (search.createdFrom() != null && search.createdTo() != null && !search.createdFrom().isBefore(search.createdTo())) {
+            throw new BadRequestException("createdFrom must be before createdTo");
+        }
+
+        Specification<Device> filters = DeviceSpecifications.matching(search);
+        Specification<Device> page = filters;
+        if (cursor != null) {
+            DeviceCursor after = DeviceCursor.decode(cursor);
+            page = filters.and(DeviceSpecifications.after(after.createdAt(), after.id(), direction));
+        }
+        Sort sort = Sort.by(direction, "createdAt", "id");
+        List<Device> devices = repository.findBy(page, query -> query.sortBy(sort).limit(limit).all());
+
+        String nextCursor = null;
+        if (devices.size() == limit) {
+            Device last = devices.get(devices.size() - 1);
+            nextCursor = new DeviceCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        Long total = null;
+        boolean estimated = false;
+        if (count == CountMode.ESTIMATE) {
+            total = estimator.estimate(search);
+            estimated = total != null;
+        }
+        if (count == CountMode.EXACT || (count == CountMode.ESTIMATE && total == null)) {
+            total = repository.count(filters);
+        }
+        return new DeviceSearchPage(devices.stream().map(DeviceMapper::toResponse).toList(), nextCursor, total, estimated);
+    }
+}
@@ -1,86 +1,442 @@
 package com.example.devices.service;
 
+import com.example.devices.coalesce.Coalesced;
+import com.example.devices.config.CacheConfig;
+import com.example.devices.domain.BrandMatch;
 import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.BatchItemResult;
+import com.example.devices.dto.DeviceBatchUpdateRequest;
+import com.example.devices.dto.DevicePage;
 import com.example.devices.dto.DeviceRequest;
 import com.example.devices.dto.DeviceResponse;
 import com.example.devices.dto.DeviceUpdateRequest;
+import com.example.devices.event.DeviceChangedEvent;
 import com.example.devices.exception.BadRequestException;
 import com.example.devices.exception.NotFoundException;
+import com.example.devices.exception.PreconditionFailedException;
 import com.example.devices.mapper.DeviceMapper;
 import com.example.devices.repository.DeviceRepository;
+import com.example.devices.snapshot.DeviceSnapshot;
+import com.example.devices.stats.DeviceStatsCounter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class DeviceService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final DeviceRepository repository;
+    private final Validator validator;
+    private final ApplicationEventPublisher events;
+    private final Cache cache;
+    // present only with devices.snapshot.enabled=true
+    private final DeviceSnapshot snapshot;
+    // only the in-memory stats (devices.stats.in-memory=true) need the before-image of a single write
+    private final boolean readBeforeWrite;
 
-    public DeviceService(DeviceRepository repository) {
+    public DeviceService(DeviceRepository repository, Validator validator, ApplicationEventPublisher events,
+                         CacheManager cacheManager, ObjectProvider<DeviceSnapshot> snapshot,
+                         ObjectProvider<DeviceStatsCounter> stats) {
         this.repository = repository;
+        this.validator = validator;
+        this.events = events;
+        this.cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        this.snapshot = snapshot.getIfAvailable();
+        this.readBeforeWrite = stats.getIfAvailable() != null;
     }
 
     public DeviceResponse create(DeviceRequest request) {
         Device device = DeviceMapper.toEntity(request);
-        device.setCreatedAt(Instant.now());
-        return DeviceMapper.toResponse(repository.save(device));
+        device.setCreatedAt(Device.now());
+        DeviceResponse created = DeviceMapper.toResponse(repository.save(device));
+        events.publishEvent(DeviceChangedEvent.created(created));
+        return created;
     }
 
+    // Stays on the primary: a replica that hasn't caught up with an update or delete would put
+    // the old row back into the cache right after the write evicted it.
+    @Coalesced
+    @Cacheable(cacheNames = CacheConfig.DEVICES_CACHE, key = "#id")
     public DeviceResponse findById(UUID id) {
         Device device = repository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Device not found: " + id));
         return DeviceMapper.toResponse(device);
     }
 
-    public List<DeviceResponse> findAll() {
-        return repository.findAll()
-                .stream()
-                .map(DeviceMapper::toResponse)
-                .toList();
+    @Transactional(readOnly = true)
+    public DevicePage findPage(int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<Device> devices;
+        if (cursor == null) {
+            devices = repository.findFirstPage(Limit.of(limit));
+        } else {
+            DeviceCursor after = DeviceCursor.decode(cursor);
+            devices = repository.findPageAfter(after.createdAt(), after.id(), Limit.of(limit));
+        }
+
+        String nextCursor = null;
+        if (devices.size() == limit) {
+            Device last = devices.get(devices.size() - 1);
+            nextCursor = new DeviceCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new DevicePage(devices.stream().map(DeviceMapper::toResponse).toList(), nextCursor);
+    }
+
+    /**
+     * Hands every device to {@code sink} in (createdAt, id) order while the underlying cursor is open.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<DeviceResponse> sink) {
+        try (Stream<DeviceResponse> devices = repository.streamAll()) {
+            devices.forEach(sink);
+        }
     }
 
+    // Concurrent identical lookups share one call and its result (@Coalesced); nothing may modify it.
+    // The state and brand lookups don't open a transaction of their own (SUPPORTS): answered from
+    // the snapshot they never touch JDBC. Otherwise the repository query runs in its own read-only
+    // transaction, so it is routed and bounded like every other read.
+    @Coalesced
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<DeviceResponse> findByBrand(String brand) {
-        return repository.findByBrandIgnoreCaseContaining(brand)
-                .stream()
-                .map(DeviceMapper::toResponse)
-                .toList();
+        return findByBrand(brand, BrandMatch.CONTAINS);
+    }
+
+    @Coalesced
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<DeviceResponse> findByBrand(String brand, BrandMatch match) {
+        String key = Device.normalizeBrand(brand);
+        if (snapshot != null && snapshot.isLoaded()) {
+            return snapshot.findByBrand(key, match);
+        }
+        return switch (match) {
+            case EXACT -> repository.findByBrandKey(key, DeviceResponse.class);
+            case PREFIX -> repository.findByBrandKeyStartingWith(key, DeviceResponse.class);
+            case CONTAINS -> repository.findByBrandKeyContaining(key, DeviceResponse.class);
+        };
     }
 
+    @Coalesced
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<DeviceResponse> findByState(DeviceState state) {
-        return repository.findByState(state)
-                .stream()
-                .map(DeviceMapper::toResponse)
-                .toList();
+        if (snapshot != null && snapshot.isLoaded()) {
+            return snapshot.findByState(state);
+        }
+        return repository.findByState(state, DeviceResponse.class);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.DEVICES_CACHE, key = "#id")
     public DeviceResponse update(UUID id, DeviceUpdateRequest request) {
-        Device device = repository.findById(id)
+        return update(id, request, null);
+    }
+
+    /**
+     * Updates the device only if it is still at {@code expectedVersion} (any version when null).
+     * <p>
+     * The IN_USE rule and the version check run inside a single guarded UPDATE, so they can't race
+     * with another writer; the row is then re-read for the response. Only when the statement
+     * matches nothing is the device loaded to tell "not found", "stale" and "in use" apart. When
+     * the event must carry a before-image, the row is first read with a lock, so it is still the
+     * row the statement changes.
+     */
+    @CacheEvict(cacheNames = CacheConfig.DEVICES_CACHE, key = "#id")
+    public DeviceResponse update(UUID id, DeviceUpdateRequest request, Long expectedVersion) {
+        DeviceResponse previous = null;
+        if (readBeforeWrite) {
+            Device device = lock(id, expectedVersion);
+            checkUpdatable(device, request);
+            previous = DeviceMapper.toResponse(device);
+        }
+        boolean changesIdentity = request.name() != null || request.brand() != null;
+        int updated = repository.updateGuarded(id, request.name(), request.brand(),
+                Device.normalizeBrand(request.brand()), request.state(), changesIdentity, expectedVersion);
+        if (updated == 0) {
+            Device device = repository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Device not found: " + id));
+            checkVersion(device, expectedVersion);
+            checkUpdatable(device, request);
+            throw concurrentlyModified(id);
+        }
+        DeviceResponse response = repository.findById(id)
+                .map(DeviceMapper::toResponse)
                 .orElseThrow(() -> new NotFoundException("Device not found: " + id));
+        events.publishEvent(DeviceChangedEvent.updated(response, previous));
+        return response;
+    }
 
-        if (device.getState() == DeviceState.IN_USE) {
-            if (request.name() != null || request.brand() != null) {
-                throw new BadRequestException("Cannot update name or brand of a device in use.");
+    @CacheEvict(cacheNames = CacheConfig.DEVICES_CACHE, key = "#id")
+    public void delete(UUID id) {
+        delete(id, null);
+    }
+
+    /**
+     * Deletes with one guarded DELETE; see {@link #update(UUID, DeviceUpdateRequest, Long)}.
+     */
+    @CacheEvict(cacheNames = CacheConfig.DEVICES_CACHE, key = "#id")
+    public void delete(UUID id, Long expectedVersion) {
+        DeviceResponse previous = null;
+        if (readBeforeWrite) {
+            Device device = lock(id, expectedVersion);
+            checkDeletable(device);
+            previous = DeviceMapper.toResponse(device);
+        }
+        if (repository.deleteGuarded(id, expectedVersion) == 0) {
+            Device device = repository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Device not found: " + id));
+            checkVersion(device, expectedVersion);
+            checkDeletable(device);
+            throw concurrentlyModified(id);
+        }
+        events.publishEvent(DeviceChangedEvent.deleted(id, previous));
+    }
+
+    /**
+     * Creates every valid element in one transaction so Hibernate can group the inserts into JDBC
+     * batches. Invalid elements are reported and skipped; they don't fail the rest of the batch.
+     */
+    public List<BatchItemResult> createAll(List<DeviceRequest> requests) {
+        checkBatchSize(requests);
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        List<Integer> indexes = new ArrayList<>(requests.size());
+        List<Device> devices = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            String violations = validate(requests.get(i));
+            if (violations != null) {
+                results[i] = BatchItemResult.failure(i, null, HttpStatus.BAD_REQUEST.value(), violations);
+                continue;
             }
+            Device device = DeviceMapper.toEntity(requests.get(i));
+            device.setCreatedAt(Device.now());
+            indexes.add(i);
+            devices.add(device);
         }
 
-        DeviceMapper.updateEntity(device, request);
-        return DeviceMapper.toResponse(repository.save(device));
+        List<Device> saved = repository.saveAll(devices);
+        for (int i = 0; i < saved.size(); i++) {
+            int index = indexes.get(i);
+            DeviceResponse created = DeviceMapper.toResponse(saved.get(i));
+            events.publishEvent(DeviceChangedEvent.created(created));
+            results[index] = BatchItemResult.success(index, HttpStatus.CREATED.value(), created);
+        }
+        return Arrays.asList(results);
     }
 
-    public void delete(UUID id) {
-        Device device = repository.findById(id)
+    /**
+     * Loads all targeted devices with one query and applies the changes in request order; the
+     * resulting updates are flushed as JDBC batches before the results are built, so they carry
+     * the new versions.
+     * <p>
+     * Each UPDATE is guarded by the version the device was loaded at, so a device another writer
+     * changed in between (set IN_USE, say) is never overwritten past the checks above: the flush
+     * fails and the whole batch is rolled back with 412, naming the device when the driver tells.
+     */
+    public List<BatchItemResult> updateAll(List<DeviceBatchUpdateRequest> requests) {
+        checkBatchSize(requests);
+        Map<UUID, Device> devices = findAllById(requests.stream()
+                .filter(Objects::nonNull)
+                .map(DeviceBatchUpdateRequest::id));
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        Map<Integer, Device> updated = new HashMap<>();
+        Map<Integer, DeviceResponse> previous = new HashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            DeviceBatchUpdateRequest request = requests.get(i);
+            String violations = validate(request);
+            if (violations != null) {
+                results[i] = BatchItemResult.failure(i, request == null ? null : request.id(), HttpStatus.BAD_REQUEST.value(), violations);
+                continue;
+            }
+            Device device = devices.get(request.id());
+            if (device == null) {
+                results[i] = notFound(i, request.id());
+                continue;
+            }
+            try {
+                checkUpdatable(device, request.toUpdateRequest());
+            } catch (BadRequestException ex) {
+                results[i] = BatchItemResult.failure(i, request.id(), HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+                continue;
+            }
+            previous.put(i, DeviceMapper.toResponse(device));
+            DeviceMapper.updateEntity(device, request.toUpdateRequest());
+            updated.put(i, device);
+        }
+
+        try {
+            repository.saveAllAndFlush(devices.values());
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw ex.getIdentifier() instanceof UUID id ? concurrentlyModified(id)
+                    : new PreconditionFailedException("A device in the batch was modified concurrently, reload and retry");
+        }
+        updated.forEach((i, device) -> {
+            cache.evict(device.getId());
+            DeviceResponse response = DeviceMapper.toResponse(device);
+            events.publishEvent(DeviceChangedEvent.updated(response, previous.get(i)));
+            results[i] = BatchItemResult.success(i, HttpStatus.OK.value(), response);
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Deletes every deletable device with a single guarded {@code DELETE ... WHERE id IN (...)}.
+     * The IN_USE rule is checked again by the statement itself; ids it skipped because their
+     * device changed since it was loaded are reported per item.
+     */
+    public List<BatchItemResult> deleteAll(List<UUID> ids) {
+        checkBatchSize(ids);
+        // locked, so the devices deleted are exactly as read; the events carry them as before-images
+        Map<UUID, Device> devices = repository.findAllByIdForUpdate(ids.stream()
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Device::getId, Function.identity()));
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        Map<UUID, List<Integer>> deletable = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            if (id == null) {
+                results[i] = BatchItemResult.failure(i, null, HttpStatus.BAD_REQUEST.value(), "id: must not be null");
+                continue;
+            }
+            Device device = devices.get(id);
+            if (device == null) {
+                results[i] = notFound(i, id);
+                continue;
+            }
+            try {
+                checkDeletable(device);
+            } catch (BadRequestException ex) {
+                results[i] = BatchItemResult.failure(i, id, HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+                continue;
+            }
+            deletable.computeIfAbsent(id, k -> new ArrayList<>()).add(i);
+        }
+
+        if (!deletable.isEmpty()) {
+            Map<UUID, Device> skipped = repository.deleteAllGuarded(deletable.keySet()) < deletable.size()
+                    ? findAllById(deletable.keySet().stream())
+                    : Map.of();
+            deletable.forEach((id, indexes) -> {
+                Device device = skipped.get(id);
+                if (device == null) {
+                    cache.evict(id);
+                    events.publishEvent(DeviceChangedEvent.deleted(id, DeviceMapper.toResponse(devices.get(id))));
+                }
+                for (int i : indexes) {
+                    results[i] = device == null ? BatchItemResult.success(i, HttpStatus.NO_CONTENT.value(), id)
+                            : notDeleted(i, device);
+                }
+            });
+        }
+        return Arrays.asList(results);
+    }
+
+    // Locked until the transaction ends, so no other writer can change it before the guarded statement.
+    private Device lock(UUID id, Long expectedVersion) {
+        Device device = repository.findByIdForUpdate(id)
                 .orElseThrow(() -> new NotFoundException("Device not found: " + id));
+        checkVersion(device, expectedVersion);
+        return device;
+    }
 
+    private static void checkVersion(Device device, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(device.getVersion())) {
+            throw new PreconditionFailedException("Device " + device.getId() + " is at version "
+                    + device.getVersion() + ", not " + expectedVersion);
+        }
+    }
+
+    private static void checkUpdatable(Device device, DeviceUpdateRequest request) {
+        if (device.getState() == DeviceState.IN_USE) {
+            if (request.name() != null || request.brand() != null) {
+                throw new BadRequestException("Cannot update name or brand of a device in use.");
+            }
+        }
+    }
+
+    private static void checkDeletable(Device device) {
         if (device.getState() == DeviceState.IN_USE) {
             throw new BadRequestException("Cannot delete a device that is in use.");
         }
+    }
+
+    // The guard rejected a row that passes every check now: it changed in between.
+    private static PreconditionFailedException concurrentlyModified(UUID id) {
+        return new PreconditionFailedException("Device " + id + " was modified concurrently, reload and retry");
+    }
+
+    private static void checkBatchSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch must contain between 1 and " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    private Map<UUID, Device> findAllById(Stream<UUID> ids) {
+        return repository.findAllById(ids.collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Device::getId, Function.identity()));
+    }
+
+    private String validate(Object item) {
+        if (item == null) {
+            return "item must not be null";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // Skipped by the guarded delete: it became IN_USE, or changed and changed back, since it was loaded.
+    private static BatchItemResult notDeleted(int index, Device device) {
+        try {
+            checkDeletable(device);
+        } catch (BadRequestException ex) {
+            return BatchItemResult.failure(index, device.getId(), HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+        }
+        return BatchItemResult.failure(index, device.getId(), HttpStatus.PRECONDITION_FAILED.value(),
+                concurrentlyModified(device.getId()).getMessage());
+    }
 
-        repository.delete(device);
+    private static BatchItemResult notFound(int index, UUID id) {
+        return BatchItemResult.failure(index, id, HttpStatus.NOT_FOUND.value(), "Device not found: " + id);
     }
 }
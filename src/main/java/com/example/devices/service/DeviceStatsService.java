@@ -0,0 +1,66 @@
+package com.example.devices.service;
+
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceStats;
+import com.example.devices.exception.BadRequestException;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.stats.DeviceStatsCounter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class DeviceStatsService {
+
+    public static final int MAX_TOP = 100;
+    public static final int MAX_DAYS = 366;
+
+    private final DeviceRepository repository;
+    // present only with devices.stats.in-memory=true
+    private final DeviceStatsCounter counter;
+
+    public DeviceStatsService(DeviceRepository repository, ObjectProvider<DeviceStatsCounter> counter) {
+        this.repository = repository;
+        this.counter = counter.getIfAvailable();
+    }
+
+    /**
+     * Counts by state, the {@code top} most common brands and devices created per day over the
+     * last {@code days} days (today included). Served from the in-memory counters once they are
+     * loaded, otherwise with three {@code GROUP BY} queries.
+     */
+    @Transactional(readOnly = true)
+    public DeviceStats stats(int top, int days) {
+        if (top < 0 || top > MAX_TOP) {
+            throw new BadRequestException("top must be between 0 and " + MAX_TOP);
+        }
+        if (days < 0 || days > MAX_DAYS) {
+            throw new BadRequestException("days must be between 0 and " + MAX_DAYS);
+        }
+        LocalDate since = LocalDate.now(ZoneOffset.UTC).minusDays(days - 1L);
+        if (counter != null && counter.isLoaded()) {
+            return counter.snapshot(top, since);
+        }
+
+        Map<DeviceState, Long> byState = new EnumMap<>(DeviceState.class);
+        for (DeviceState state : DeviceState.values()) {
+            byState.put(state, 0L);
+        }
+        repository.countByState().forEach(c -> byState.put(c.state(), c.count()));
+        long total = byState.values().stream().mapToLong(Long::longValue).sum();
+
+        List<DeviceStats.BrandCount> brands = top == 0 ? List.of() : repository.countByBrand(Limit.of(top));
+        List<DeviceStats.DayCount> created = days == 0 ? List.of() : repository.countByDay(since.atStartOfDay(ZoneOffset.UTC).toInstant())
+                .stream()
+                .map(c -> new DeviceStats.DayCount(LocalDate.ofInstant(c.start(), ZoneOffset.UTC), c.count()))
+                .toList();
+        return new DeviceStats(total, byState, brands, created);
+    }
+}
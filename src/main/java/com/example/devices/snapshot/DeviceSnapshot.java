@@ -0,0 +1,319 @@
+package com.example.devices.snapshot;
+
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.repository.DeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Every device held in memory and indexed by state and normalized brand, so state and brand
+ * queries are answered without a database round trip.
+ * <p>
+ * {@link #rebuild()} streams the whole table into a new index. Committed changes are applied as
+ * they are published; those committed while a rebuild streams are replayed onto the new index
+ * before it replaces the old one. The table is read on the primary: a lagging replica could miss
+ * changes whose events only reached the old index. A change is only applied over an older
+ * version of the device, and an update never brings back a deleted device, so late events can't
+ * roll a device back.
+ * <p>
+ * Brand substring search intersects a trigram index over the distinct brands, then checks the
+ * few candidates; there are far fewer brands than devices.
+ */
+public class DeviceSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceSnapshot.class);
+    private static final Comparator<DeviceResponse> ORDER =
+            Comparator.comparing(DeviceResponse::createdAt).thenComparing(DeviceResponse::id);
+
+    private final DeviceRepository repository;
+    private final TransactionTemplate transaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuilding = new ReentrantLock();
+    private final LongAdder applied = new LongAdder();
+    // guarded by lock
+    private Index index;
+    // changes committed during a running rebuild; null otherwise. Guarded by lock.
+    private List<DeviceChangedEvent> pending;
+    private volatile Instant builtAt;
+    private volatile long drift = -1;
+
+    public DeviceSnapshot(DeviceRepository repository, TransactionTemplate transaction) {
+        this.repository = repository;
+        this.transaction = transaction;
+    }
+
+    /**
+     * False until the first rebuild has completed.
+     */
+    public boolean isLoaded() {
+        return builtAt != null;
+    }
+
+    /**
+     * Replaces the snapshot with the current table contents. Concurrent calls run one after the
+     * other; queries keep using the previous snapshot meanwhile.
+     */
+    public void rebuild() {
+        rebuilding.lock();
+        try {
+            write(() -> pending = new ArrayList<>());
+            Index fresh = new Index();
+            try {
+                transaction.executeWithoutResult(status -> {
+                    try (Stream<DeviceResponse> devices = repository.streamAll()) {
+                        devices.forEach(fresh::put);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                write(() -> pending = null);
+                throw ex;
+            }
+            write(() -> {
+                pending.forEach(fresh::apply);
+                index = fresh;
+                pending = null;
+            });
+            builtAt = Instant.now();
+            drift = 0;
+            log.info("Device snapshot rebuilt with {} devices", fresh.byId.size());
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+
+    // ahead of the other listeners, which may read the change back through DeviceService
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        write(() -> {
+            if (index != null) {
+                index.apply(event);
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        });
+        applied.increment();
+    }
+
+    /**
+     * Compares the number of devices held with the table's row count and records the difference
+     * as {@link #getDrift()}. Changes committed but not yet applied show up as a brief drift too.
+     */
+    public void verify() {
+        if (!isLoaded()) {
+            return;
+        }
+        long rows = transaction.execute(status -> repository.count());
+        drift = Math.abs(rows - size());
+        if (drift != 0) {
+            log.warn("Device snapshot holds {} devices, the table {}", size(), rows);
+        }
+    }
+
+    /**
+     * Devices in {@code state}, oldest first.
+     */
+    public List<DeviceResponse> findByState(DeviceState state) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<DeviceResponse> devices = index.byState.get(state);
+            return devices == null ? List.of() : List.copyOf(devices);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devices whose normalized brand matches {@code brandKey}, oldest first; same semantics as the
+     * repository's brand key queries.
+     */
+    public List<DeviceResponse> findByBrand(String brandKey, BrandMatch match) {
+        lock.readLock().lock();
+        try {
+            List<NavigableSet<DeviceResponse>> matches = new ArrayList<>();
+            switch (match) {
+                case EXACT -> {
+                    NavigableSet<DeviceResponse> devices = index.byBrand.get(brandKey);
+                    if (devices != null) {
+                        matches.add(devices);
+                    }
+                }
+                case PREFIX -> matches.addAll(
+                        index.byBrand.subMap(brandKey, true, brandKey + Character.MAX_VALUE, false).values());
+                case CONTAINS -> index.brandsContaining(brandKey).forEach(key -> matches.add(index.byBrand.get(key)));
+            }
+            if (matches.size() == 1) {
+                return List.copyOf(matches.get(0));
+            }
+            List<DeviceResponse> result = new ArrayList<>();
+            matches.forEach(result::addAll);
+            result.sort(ORDER);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index == null ? 0 : index.byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Seconds since the last full rebuild, -1 before the first.
+     */
+    public double getAgeSeconds() {
+        Instant built = builtAt;
+        return built == null ? -1 : Duration.between(built, Instant.now()).toMillis() / 1000.0;
+    }
+
+    /**
+     * Difference between devices held and table rows at the last {@link #verify()}, -1 before the
+     * first rebuild.
+     */
+    public long getDrift() {
+        return drift;
+    }
+
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Index {
+
+        final Map<UUID, DeviceResponse> byId = new HashMap<>();
+        final Map<DeviceState, NavigableSet<DeviceResponse>> byState = new EnumMap<>(DeviceState.class);
+        final NavigableMap<String, NavigableSet<DeviceResponse>> byBrand = new TreeMap<>();
+        final Map<String, Set<String>> brandsByTrigram = new HashMap<>();
+
+        void apply(DeviceChangedEvent event) {
+            switch (event.type()) {
+                case CREATED -> put(event.device());
+                case UPDATED -> {
+                    if (byId.containsKey(event.id())) {
+                        put(event.device());
+                    }
+                }
+                case DELETED -> remove(event.id());
+            }
+        }
+
+        void put(DeviceResponse device) {
+            DeviceResponse current = byId.get(device.id());
+            if (current != null) {
+                if (current.version() != null && device.version() != null && device.version() < current.version()) {
+                    return;
+                }
+                remove(device.id());
+            }
+            byId.put(device.id(), device);
+            byState.computeIfAbsent(device.state(), s -> new TreeSet<>(ORDER)).add(device);
+            String key = brandKey(device);
+            byBrand.computeIfAbsent(key, k -> {
+                trigrams(k).forEach(trigram -> brandsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(k));
+                return new TreeSet<>(ORDER);
+            }).add(device);
+        }
+
+        void remove(UUID id) {
+            DeviceResponse device = byId.remove(id);
+            if (device == null) {
+                return;
+            }
+            byState.get(device.state()).remove(device);
+            String key = brandKey(device);
+            NavigableSet<DeviceResponse> sameBrand = byBrand.get(key);
+            sameBrand.remove(device);
+            if (sameBrand.isEmpty()) {
+                byBrand.remove(key);
+                trigrams(key).forEach(trigram -> {
+                    Set<String> keys = brandsByTrigram.get(trigram);
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        brandsByTrigram.remove(trigram);
+                    }
+                });
+            }
+        }
+
+        List<String> brandsContaining(String fragment) {
+            if (fragment.length() < 3) {
+                return byBrand.keySet().stream().filter(key -> key.contains(fragment)).toList();
+            }
+            Set<String> candidates = null;
+            for (String trigram : trigrams(fragment)) {
+                Set<String> keys = brandsByTrigram.getOrDefault(trigram, Set.of());
+                if (candidates == null) {
+                    candidates = new HashSet<>(keys);
+                } else {
+                    candidates.retainAll(keys);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+            // sharing every trigram doesn't make the fragment a substring; check
+            return candidates.stream().filter(key -> key.contains(fragment)).toList();
+        }
+
+        private static String brandKey(DeviceResponse device) {
+            return Device.normalizeBrand(device.brand());
+        }
+
+        private static Set<String> trigrams(String value) {
+            Set<String> trigrams = new HashSet<>();
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                trigrams.add(value.substring(i, i + 3));
+            }
+            return trigrams;
+        }
+    }
+}
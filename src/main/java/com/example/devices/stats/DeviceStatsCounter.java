@@ -0,0 +1,158 @@
+package com.example.devices.stats;
+
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceStats;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.repository.DeviceRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory device counts, read in constant time regardless of table size.
+ * <p>
+ * Every committed change is applied as an exact delta: creates add the device, deletes remove
+ * the before-image the event carries, updates do both. {@link #recount()} runs a fresh
+ * {@code GROUP BY} periodically as a check against drift (changes made around this instance);
+ * a result that changes committed during the recount may or may not include is discarded.
+ */
+public class DeviceStatsCounter {
+
+    private record Brand(String brand, LongAdder count) {}
+
+    private record Counts(Map<DeviceState, LongAdder> byState,
+                          Map<String, Brand> byBrand,
+                          Map<LocalDate, LongAdder> byDay) {
+        Counts() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    // every brand, most devices first, as of the given counts and number of changes
+    private record SortedBrands(Counts counts, long changes, List<DeviceStats.BrandCount> brands) {}
+
+    private final DeviceRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Counts counts;
+    private volatile SortedBrands sortedBrands;
+
+    public DeviceStatsCounter(DeviceRepository repository, TransactionTemplate readOnlyTransaction) {
+        this.repository = repository;
+        this.readOnlyTransaction = readOnlyTransaction;
+    }
+
+    /**
+     * False until the first recount has completed.
+     */
+    public boolean isLoaded() {
+        return counts != null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        Counts current = counts;
+        if (current != null) {
+            if (event.previous() != null) {
+                add(current, event.previous(), -1);
+            }
+            if (event.device() != null) {
+                add(current, event.device(), 1);
+            }
+        }
+        changes.incrementAndGet();
+    }
+
+    public void recount() {
+        long before = changes.get();
+        Counts result = readOnlyTransaction.execute(status -> {
+            Counts fresh = new Counts();
+            repository.countByState().forEach(c -> fresh.byState().put(c.state(), adder(c.count())));
+            repository.countByBrand(Limit.unlimited()).forEach(c ->
+                    fresh.byBrand().put(Device.normalizeBrand(c.brand()), new Brand(c.brand(), adder(c.count()))));
+            repository.countByDay(null).forEach(c -> fresh.byDay().put(day(c.start()), adder(c.count())));
+            return fresh;
+        });
+        // the first load is kept either way; the next check corrects it
+        if (counts == null || changes.get() == before) {
+            counts = result;
+        }
+    }
+
+    public DeviceStats snapshot(int top, LocalDate since) {
+        Counts current = counts;
+        Map<DeviceState, Long> byState = new EnumMap<>(DeviceState.class);
+        long total = 0;
+        for (DeviceState state : DeviceState.values()) {
+            LongAdder count = current.byState().get(state);
+            byState.put(state, count == null ? 0 : count.sum());
+            total += byState.get(state);
+        }
+        List<DeviceStats.BrandCount> brands = sortedBrands(current);
+        brands = brands.subList(0, Math.min(top, brands.size()));
+        List<DeviceStats.DayCount> days = new ArrayList<>();
+        current.byDay().forEach((day, count) -> {
+            if (!day.isBefore(since)) {
+                days.add(new DeviceStats.DayCount(day, count.sum()));
+            }
+        });
+        days.sort(Comparator.comparing(DeviceStats.DayCount::day));
+        return new DeviceStats(total, byState, brands, days);
+    }
+
+    // Sorted again only after a change: the change count is read before sorting and only bumped
+    // once a change is applied, so a sort that may have missed one is never reused.
+    private List<DeviceStats.BrandCount> sortedBrands(Counts current) {
+        SortedBrands sorted = sortedBrands;
+        long changed = changes.get();
+        if (sorted == null || sorted.counts() != current || sorted.changes() != changed) {
+            sorted = new SortedBrands(current, changed, current.byBrand().values().stream()
+                    .map(b -> new DeviceStats.BrandCount(b.brand(), b.count().sum()))
+                    .sorted(Comparator.comparingLong(DeviceStats.BrandCount::count).reversed()
+                            .thenComparing(b -> Device.normalizeBrand(b.brand())))
+                    .toList());
+            sortedBrands = sorted;
+        }
+        return sorted.brands();
+    }
+
+    // Brands and days are changed under their map entry's lock, so one whose count drops to zero
+    // can be removed without losing a concurrent increment.
+    private static void add(Counts counts, DeviceResponse device, long delta) {
+        counts.byState().computeIfAbsent(device.state(), s -> new LongAdder()).add(delta);
+        counts.byBrand().compute(Device.normalizeBrand(device.brand()), (key, brand) -> {
+            Brand result = brand == null ? new Brand(device.brand(), new LongAdder()) : brand;
+            result.count().add(delta);
+            return result.count().sum() > 0 ? result : null;
+        });
+        counts.byDay().compute(day(device.createdAt()), (day, count) -> {
+            LongAdder result = count == null ? new LongAdder() : count;
+            result.add(delta);
+            return result.sum() > 0 ? result : null;
+        });
+    }
+
+    private static LongAdder adder(long value) {
+        LongAdder adder = new LongAdder();
+        adder.add(value);
+        return adder;
+    }
+
+    private static LocalDate day(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,48 @@
+-- Baseline: the devices table as Hibernate used to create it, plus its indexes. Databases created
+-- by the old ddl-auto=update setup are baselined at version 0 and run this too, so every statement
+-- tolerates what ddl-auto may already have created (the table, brand_key, the indexes). MySQL has
+-- no ADD COLUMN / CREATE INDEX IF NOT EXISTS, hence the information_schema checks.
+
+CREATE TABLE IF NOT EXISTS devices (
+    id         binary(16)                           NOT NULL,
+    name       varchar(255)                         NOT NULL,
+    brand      varchar(255)                         NOT NULL,
+    state      enum ('AVAILABLE','INACTIVE','IN_USE') NOT NULL,
+    created_at datetime(6)                          NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+SET @ddl = IF((SELECT count(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'devices' AND column_name = 'brand_key') = 0,
+              'ALTER TABLE devices ADD COLUMN brand_key varchar(255) AFTER brand', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT count(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'devices' AND index_name = 'idx_devices_state') = 0,
+              'CREATE INDEX idx_devices_state ON devices (state)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT count(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'devices' AND index_name = 'idx_devices_state_created_at') = 0,
+              'CREATE INDEX idx_devices_state_created_at ON devices (state, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT count(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'devices' AND index_name = 'idx_devices_brand_key') = 0,
+              'CREATE INDEX idx_devices_brand_key ON devices (brand_key)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT count(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'devices' AND index_name = 'idx_devices_created_at_id') = 0,
+              'CREATE INDEX idx_devices_created_at_id ON devices (created_at, id)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
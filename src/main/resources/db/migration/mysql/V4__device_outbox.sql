@@ -0,0 +1,10 @@
+-- Device changes waiting to be relayed downstream; written in the transaction that made the
+-- change and deleted once published.
+CREATE TABLE device_outbox (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    device_id  char(36)    NOT NULL,
+    type       varchar(16) NOT NULL,
+    payload    longtext    NOT NULL,
+    created_at datetime(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
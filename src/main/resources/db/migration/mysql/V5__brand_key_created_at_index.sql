@@ -0,0 +1,2 @@
+-- Searches filtered by exact brand read their page in (created_at, id) order from this index.
+CREATE INDEX idx_devices_brand_key_created_at_id ON devices (brand_key, created_at, id);
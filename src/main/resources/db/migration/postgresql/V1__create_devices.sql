@@ -0,0 +1,23 @@
+-- Baseline: the devices table as Hibernate used to create it, plus its indexes. Databases created
+-- by the old ddl-auto=update setup are baselined at version 0 and run this too, so every statement
+-- tolerates what ddl-auto may already have created (the table, brand_key, the indexes).
+
+CREATE TABLE IF NOT EXISTS devices (
+    id         uuid                        NOT NULL,
+    name       varchar(255)                NOT NULL,
+    brand      varchar(255)                NOT NULL,
+    state      varchar(255)                NOT NULL CHECK (state IN ('AVAILABLE', 'IN_USE', 'INACTIVE')),
+    created_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE devices ADD COLUMN IF NOT EXISTS brand_key varchar(255);
+
+CREATE INDEX IF NOT EXISTS idx_devices_state ON devices (state);
+CREATE INDEX IF NOT EXISTS idx_devices_state_created_at ON devices (state, created_at);
+CREATE INDEX IF NOT EXISTS idx_devices_brand_key ON devices (brand_key);
+CREATE INDEX IF NOT EXISTS idx_devices_created_at_id ON devices (created_at, id);
+
+-- Brand CONTAINS searches (brand_key LIKE '%x%') go through this trigram index.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_devices_brand_key_trgm ON devices USING gin (brand_key gin_trgm_ops);
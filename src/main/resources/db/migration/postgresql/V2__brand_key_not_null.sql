@@ -0,0 +1,4 @@
+-- Databases created by ddl-auto may still have rows from before brand_key existed.
+UPDATE devices SET brand_key = lower(trim(brand)) WHERE brand_key IS NULL;
+
+ALTER TABLE devices ALTER COLUMN brand_key SET NOT NULL;
@@ -0,0 +1,2 @@
+-- Optimistic-locking version; existing rows start at 0.
+ALTER TABLE devices ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Device changes waiting to be relayed downstream; written in the transaction that made the
+-- change and deleted once published.
+CREATE TABLE device_outbox (
+    id         bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    device_id  char(36)                    NOT NULL,
+    type       varchar(16)                 NOT NULL,
+    payload    text                        NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
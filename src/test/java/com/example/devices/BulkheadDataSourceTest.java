@@ -0,0 +1,64 @@
+package com.example.devices;
+
+import com.example.devices.datasource.BulkheadDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkheadDataSourceTest {
+
+    @Mock
+    DataSource target;
+
+    BulkheadDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new BulkheadDataSource(target, 2, 10, Duration.ofMillis(50));
+    }
+
+    @Test
+    void getConnection_holdsPermitUntilClosed() throws SQLException {
+        Connection raw = mock(Connection.class);
+        when(target.getConnection()).thenReturn(raw);
+
+        Connection connection = dataSource.getConnection();
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+
+        connection.close();
+        connection.close();
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void getConnection_rejectsWhenPermitsExhausted() throws SQLException {
+        when(target.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThatThrownBy(() -> dataSource.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(dataSource.getRejected()).isEqualTo(1);
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    void getConnection_releasesPermitWhenPoolFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool timeout"));
+
+        assertThatThrownBy(() -> dataSource.getConnection()).hasMessage("pool timeout");
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.devices;
+
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangeFeed;
+import com.example.devices.event.DeviceChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceChangeFeedTest {
+
+    DeviceChangeFeed feed = new DeviceChangeFeed(2, Duration.ofSeconds(5), Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        feed.destroy();
+    }
+
+    @Test
+    void subscriber_receivesChangesWithIds() throws Exception {
+        RecordingEmitter live = new RecordingEmitter();
+        feed.subscribe(null, live);
+        awaitSubscribed();
+
+        UUID id = UUID.randomUUID();
+        feed.onDeviceChanged(DeviceChangedEvent.deleted(id,
+                new DeviceResponse(id, "Router", "Netgear", DeviceState.AVAILABLE, Instant.now(), 0L)));
+
+        String event = live.next();
+        assertThat(event).contains("event:DELETED").contains("id:").contains(id.toString());
+    }
+
+    @Test
+    void lastEventId_replaysMissedChanges() throws Exception {
+        RecordingEmitter first = new RecordingEmitter();
+        feed.subscribe(null, first);
+        awaitSubscribed();
+        feed.onDeviceChanged(DeviceChangedEvent.created(device("a")));
+        String firstId = idOf(first.next());
+
+        feed.onDeviceChanged(DeviceChangedEvent.created(device("b")));
+        RecordingEmitter resumed = new RecordingEmitter();
+        feed.subscribe(firstId, resumed);
+
+        assertThat(resumed.next()).contains("name=b");
+    }
+
+    @Test
+    void lastEventId_outsideBuffer_sendsReset() throws Exception {
+        feed.onDeviceChanged(DeviceChangedEvent.created(device("a")));
+        RecordingEmitter resumed = new RecordingEmitter();
+        feed.subscribe("unknown-1", resumed);
+
+        assertThat(resumed.next()).contains("event:reset");
+    }
+
+    @Test
+    void lastEventId_negativeSequence_sendsReset() throws Exception {
+        RecordingEmitter first = new RecordingEmitter();
+        feed.subscribe(null, first);
+        awaitSubscribed();
+        feed.onDeviceChanged(DeviceChangedEvent.created(device("a")));
+        String firstId = idOf(first.next());
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        feed.subscribe(firstId.substring(0, firstId.lastIndexOf('-')) + "--1", resumed);
+
+        assertThat(resumed.next()).contains("event:reset");
+    }
+
+    @Test
+    void unexpectedFailure_completesTheStreamWithTheError() throws Exception {
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        feed.subscribe(null, new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                throw new IllegalArgumentException("cannot encode");
+            }
+
+            @Override
+            public void completeWithError(Throwable ex) {
+                failure.complete(ex);
+            }
+        });
+
+        assertThat(failure.get(5, TimeUnit.SECONDS)).hasMessage("cannot encode");
+    }
+
+    private void awaitSubscribed() throws InterruptedException {
+        for (int i = 0; i < 100 && feed.getSubscribers() == 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static String idOf(String event) {
+        return event.lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+    }
+
+    private static DeviceResponse device(String name) {
+        return new DeviceResponse(UUID.randomUUID(), name, "Apple", DeviceState.AVAILABLE, Instant.now(), 0L);
+    }
+
+    // Captures each event as the text that would go on the wire.
+    static class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String text = builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining());
+            if (!text.startsWith(":")) {
+                events.add(text);
+            }
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertThat(event).as("event within 5s").isNotNull();
+            return event;
+        }
+    }
+}
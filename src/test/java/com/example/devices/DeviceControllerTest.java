@@ -1,21 +1,49 @@
 package com.example.devices;
 
 
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.CountMode;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.BatchItemResult;
+import com.example.devices.dto.DevicePage;
 import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceSearchPage;
+import com.example.devices.dto.DeviceSearchRequest;
+import com.example.devices.dto.DeviceStats;
+import com.example.devices.event.DeviceChangeFeed;
+import com.example.devices.exception.NotFoundException;
+import com.example.devices.exception.PreconditionFailedException;
+import com.example.devices.service.DeviceSearchService;
 import com.example.devices.service.DeviceService;
+import com.example.devices.service.DeviceStatsService;
+import com.example.devices.snapshot.DeviceSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -23,48 +51,174 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 // Adjust the import to your controller class package/name:
 @WebMvcTest(controllers = com.example.devices.controller.DeviceController.class)
+@Import(SimpleMeterRegistry.class)
 class DeviceControllerTest {
 
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @MockBean
     DeviceService service;
 
+    @MockBean
+    DeviceStatsService statsService;
+
+    @MockBean
+    DeviceChangeFeed changeFeed;
+
+    @MockBean
+    DeviceSearchService searchService;
+
+    @MockBean
+    DeviceSnapshot snapshot;
+
 
 
     @Test
     void getById_returns200() throws Exception {
         UUID id = UUID.randomUUID();
         DeviceResponse resp = new DeviceResponse(id, "MBP", "Apple",
-                DeviceState.IN_USE, Instant.now());
+                DeviceState.IN_USE, Instant.now(), 3L);
 
         Mockito.when(service.findById(id)).thenReturn(resp);
 
         mvc.perform(get("/api/devices/{id}", id))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.id").value(id.toString()))
-                .andExpect(jsonPath("$.name").value("MBP"));
+                .andExpect(jsonPath("$.name").value("MBP"))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void getById_ifNoneMatchCurrentVersion_returns304() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.findById(id)).thenReturn(new DeviceResponse(id, "MBP", "Apple",
+                DeviceState.IN_USE, Instant.now(), 3L));
+
+        mvc.perform(get("/api/devices/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
     void getAll_returns200_list() throws Exception {
         DeviceResponse a = new DeviceResponse(UUID.randomUUID(), "MBP", "Apple",
-                DeviceState.IN_USE, Instant.now());
+                DeviceState.IN_USE, Instant.now(), 0L);
+        DeviceResponse b = new DeviceResponse(UUID.randomUUID(), "ThinkPad", "Lenovo",
+                DeviceState.AVAILABLE, Instant.now(), 0L);
+        streamDevices(a, b);
+
+        MvcResult result = mvc.perform(get("/api/devices"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].name").value("ThinkPad"));
+    }
+
+    @Test
+    void getAll_ndjson_writesOneDevicePerLine() throws Exception {
+        DeviceResponse a = new DeviceResponse(UUID.randomUUID(), "MBP", "Apple",
+                DeviceState.IN_USE, Instant.now(), 0L);
         DeviceResponse b = new DeviceResponse(UUID.randomUUID(), "ThinkPad", "Lenovo",
-                DeviceState.AVAILABLE, Instant.now());
+                DeviceState.AVAILABLE, Instant.now(), 0L);
+        streamDevices(a, b);
+
+        MvcResult result = mvc.perform(get("/api/devices").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(allOf(
+                        org.hamcrest.Matchers.startsWith("{\"id\":\"" + a.id() + "\""),
+                        containsString("}\n{\"id\":\"" + b.id() + "\""),
+                        org.hamcrest.Matchers.endsWith("}\n"))));
+    }
 
-        Mockito.when(service.findAll()).thenReturn(List.of(a, b));
+    @Test
+    void getStats_returnsCounts() throws Exception {
+        Mockito.when(statsService.stats(5, 7)).thenReturn(new DeviceStats(3,
+                Map.of(DeviceState.AVAILABLE, 2L, DeviceState.IN_USE, 1L, DeviceState.INACTIVE, 0L),
+                List.of(new DeviceStats.BrandCount("Apple", 3)),
+                List.of(new DeviceStats.DayCount(LocalDate.of(2025, 8, 16), 3))));
 
-        mvc.perform(get("/api/devices"))
+        mvc.perform(get("/api/devices/stats").param("top", "5").param("days", "7"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)));
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byState.AVAILABLE").value(2))
+                .andExpect(jsonPath("$.topBrands[0].brand").value("Apple"))
+                .andExpect(jsonPath("$.createdPerDay[0].day").value("2025-08-16"));
+    }
+
+    @Test
+    void getPage_asCbor_writesBinaryIdsAndEpochMicros() throws Exception {
+        UUID id = UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6");
+        Instant createdAt = Instant.parse("2025-08-16T12:00:00.123456Z");
+        DeviceResponse a = new DeviceResponse(id, "MBP", "Apple", DeviceState.IN_USE, createdAt, 0L);
+        Mockito.when(service.findPage(100, null)).thenReturn(new DevicePage(List.of(a), null));
+
+        byte[] body = mvc.perform(get("/api/devices/page").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode item = new ObjectMapper(new CBORFactory()).readTree(body).get("items").get(0);
+        assertThat(item.get("id").binaryValue()).hasSize(16);
+        assertThat(ByteBuffer.wrap(item.get("id").binaryValue()).getLong()).isEqualTo(id.getMostSignificantBits());
+        assertThat(item.get("createdAt").longValue()).isEqualTo(1755345600123456L);
+        assertThat(item.get("name").textValue()).isEqualTo("MBP");
+    }
+
+    @Test
+    void search_combinesFiltersAndReturnsEstimate() throws Exception {
+        DeviceResponse a = new DeviceResponse(UUID.randomUUID(), "iPhone 15", "Apple",
+                DeviceState.AVAILABLE, Instant.now(), 0L);
+        DeviceSearchRequest search = new DeviceSearchRequest("apple", BrandMatch.EXACT, DeviceState.AVAILABLE, "iP",
+                Instant.parse("2025-01-01T00:00:00Z"), null);
+        Mockito.when(searchService.search(search, Sort.Direction.DESC, 1, null, CountMode.ESTIMATE))
+                .thenReturn(new DeviceSearchPage(List.of(a), "next", 40L, true));
+
+        mvc.perform(get("/api/devices/search")
+                        .param("brand", "apple")
+                        .param("state", "AVAILABLE")
+                        .param("namePrefix", "iP")
+                        .param("createdFrom", "2025-01-01T00:00:00Z")
+                        .param("direction", "DESC")
+                        .param("limit", "1")
+                        .param("count", "ESTIMATE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(a.id().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.count").value(40))
+                .andExpect(jsonPath("$.countEstimated").value(true));
+    }
+
+    @Test
+    void getPage_returnsItemsAndNextCursor() throws Exception {
+        DeviceResponse a = new DeviceResponse(UUID.randomUUID(), "MBP", "Apple",
+                DeviceState.IN_USE, Instant.now(), 0L);
+        Mockito.when(service.findPage(1, "abc")).thenReturn(new DevicePage(List.of(a), "next"));
+
+        mvc.perform(get("/api/devices/page").param("limit", "1").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(a.id().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @Test
     void findByBrand_returns200() throws Exception {
-        Mockito.when(service.findByBrand("apple")).thenReturn(List.of(
-                new DeviceResponse(UUID.randomUUID(), "iPhone", "Apple", DeviceState.AVAILABLE, Instant.now())
+        Mockito.when(service.findByBrand("apple", BrandMatch.CONTAINS)).thenReturn(List.of(
+                new DeviceResponse(UUID.randomUUID(), "iPhone", "Apple", DeviceState.AVAILABLE, Instant.now(), 0L)
         ));
 
         mvc.perform(get("/api/devices/brand/{brand}", "apple"))
@@ -72,6 +226,15 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$[0].brand").value("Apple"));
     }
 
+    @Test
+    void findByBrand_prefixMatch_returns200() throws Exception {
+        Mockito.when(service.findByBrand("app", BrandMatch.PREFIX)).thenReturn(List.of());
+
+        mvc.perform(get("/api/devices/brand/{brand}", "app").param("match", "PREFIX"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
     @Test
     void findByState_returns200() throws Exception {
         Mockito.when(service.findByState(DeviceState.INACTIVE)).thenReturn(List.of());
@@ -81,13 +244,38 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test
+    void rebuildSnapshot_returnsSizeAndBuildTime() throws Exception {
+        Mockito.when(snapshot.size()).thenReturn(42);
+        Mockito.when(snapshot.getBuiltAt()).thenReturn(Instant.parse("2025-08-16T10:00:00Z"));
+
+        mvc.perform(post("/api/devices/snapshot/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.devices").value(42))
+                .andExpect(jsonPath("$.builtAt").value("2025-08-16T10:00:00Z"));
+        Mockito.verify(snapshot).rebuild();
+    }
+
+    @Test
+    void getById_notFound_returns404AndCountsError() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.findById(id)).thenThrow(new NotFoundException("Device not found: " + id));
+
+        mvc.perform(get("/api/devices/{id}", id))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Device not found: " + id));
+
+        assertThat(meterRegistry.counter("devices.api.errors",
+                "exception", "NotFoundException", "status", "404").count()).isEqualTo(1.0);
+    }
+
     @Test
     void update_returns200() throws Exception {
         UUID id = UUID.randomUUID();
         DeviceResponse updated = new DeviceResponse(id, "XPS 13", "Dell",
-                DeviceState.AVAILABLE, Instant.now());
+                DeviceState.AVAILABLE, Instant.now(), 0L);
 
-        Mockito.when(service.update(eq(id), any())).thenReturn(updated);
+        Mockito.when(service.update(eq(id), any(), isNull())).thenReturn(updated);
 
         String json = """
           {
@@ -105,12 +293,87 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.brand").value("Dell"));
     }
 
+    @Test
+    void update_ifMatch_passesExpectedVersionAndReturnsNewETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        DeviceResponse updated = new DeviceResponse(id, "XPS 13", "Dell",
+                DeviceState.AVAILABLE, Instant.now(), 4L);
+        Mockito.when(service.update(eq(id), any(), eq(3L))).thenReturn(updated);
+
+        mvc.perform(put("/api/devices/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"XPS 13\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void update_staleIfMatch_returns412() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(service.update(eq(id), any(), eq(2L)))
+                .thenThrow(new PreconditionFailedException("Device " + id + " is at version 3, not 2"));
+
+        mvc.perform(put("/api/devices/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"XPS 13\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void createBatch_returnsPerItemResults() throws Exception {
+        DeviceResponse created = new DeviceResponse(UUID.randomUUID(), "iPhone 15", "Apple",
+                DeviceState.AVAILABLE, Instant.now(), 0L);
+        Mockito.when(service.createAll(anyList())).thenReturn(List.of(
+                BatchItemResult.success(0, 201, created),
+                BatchItemResult.failure(1, null, 400, "name: must not be blank")
+        ));
+
+        String json = """
+          [
+            {"name":"iPhone 15","brand":"Apple","state":"AVAILABLE"},
+            {"name":"","brand":"Apple","state":"AVAILABLE"}
+          ]
+        """;
+
+        mvc.perform(post("/api/devices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].device.id").value(created.id().toString()))
+                .andExpect(jsonPath("$[1].status").value(400));
+    }
+
     @Test
     void delete_returns204() throws Exception {
         UUID id = UUID.randomUUID();
-        Mockito.doNothing().when(service).delete(id);
+        Mockito.doNothing().when(service).delete(id, null);
 
         mvc.perform(delete("/api/devices/{id}", id))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    void delete_ifMatch_passesExpectedVersion() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        mvc.perform(delete("/api/devices/{id}", id).header(HttpHeaders.IF_MATCH, "W/\"7\""))
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(service).delete(id, 7L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamDevices(DeviceResponse... devices) {
+        Mockito.doAnswer(inv -> {
+            Consumer<DeviceResponse> sink = inv.getArgument(0);
+            for (DeviceResponse device : devices) {
+                sink.accept(device);
+            }
+            return null;
+        }).when(service).streamAll(ArgumentMatchers.any(Consumer.class));
+    }
 }
@@ -0,0 +1,146 @@
+package com.example.devices;
+
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.domain.UuidStrategy;
+import com.example.devices.dto.DeviceRequest;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.exception.TooManyRequestsException;
+import com.example.devices.ingest.DeviceIngestQueue;
+import com.example.devices.ingest.WriteAheadLog;
+import com.example.devices.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class DeviceIngestQueueTest {
+
+    @TempDir
+    Path walDirectory;
+
+    DeviceRepository repo = mock(DeviceRepository.class);
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    List<Device> stored = new ArrayList<>();
+
+    @Test
+    void submit_acceptsAndStoresOnShutdownDrain() throws Exception {
+        recordSaves();
+        DeviceIngestQueue queue = queue(10);
+        queue.start();
+
+        DeviceResponse accepted = queue.submit(new DeviceRequest("Phone", "Apple", DeviceState.AVAILABLE));
+        queue.submit(new DeviceRequest("Tablet", "Apple", DeviceState.AVAILABLE));
+        queue.stop();
+
+        assertThat(accepted.id()).isNotNull();
+        assertThat(accepted.version()).isNull();
+        assertThat(stored).extracting(Device::getName).containsExactly("Phone", "Tablet");
+        assertThat(stored.get(0).getId()).isEqualTo(accepted.id());
+        assertThat(stored.get(0).getCreatedAt()).isEqualTo(accepted.createdAt());
+        assertThat(queue.getDepth()).isZero();
+        assertThat(queue.getWritten()).isEqualTo(2);
+        try (var files = Files.list(walDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void submit_rejectsWhileCapacityIsTaken() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repo.saveAll(anyList())).thenAnswer(inv -> {
+            release.await();
+            return inv.getArgument(0);
+        });
+        DeviceIngestQueue queue = queue(2);
+        queue.start();
+
+        queue.submit(new DeviceRequest("a", "Apple", DeviceState.AVAILABLE));
+        queue.submit(new DeviceRequest("b", "Apple", DeviceState.AVAILABLE));
+
+        assertThatThrownBy(() -> queue.submit(new DeviceRequest("c", "Apple", DeviceState.AVAILABLE)))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(queue.getRejected()).isEqualTo(1);
+
+        release.countDown();
+        queue.stop();
+        assertThat(queue.getWritten()).isEqualTo(2);
+    }
+
+    @Test
+    void start_replaysLeftoverLogSkippingStoredDevices() throws Exception {
+        DeviceResponse storedBefore = new DeviceResponse(UUID.randomUUID(), "a", "Apple", DeviceState.AVAILABLE, Device.now(), null);
+        DeviceResponse lost = new DeviceResponse(UUID.randomUUID(), "b", "Apple", DeviceState.AVAILABLE, Device.now(), null);
+        // a previous run that died without releasing anything
+        WriteAheadLog crashed = new WriteAheadLog(walDirectory, 1 << 20, false);
+        crashed.append(objectMapper.writeValueAsBytes(storedBefore));
+        crashed.append(objectMapper.writeValueAsBytes(lost));
+
+        when(repo.findAllById(any())).thenReturn(List.of(Device.builder().id(storedBefore.id()).build()));
+        recordSaves();
+        DeviceIngestQueue queue = queue(10);
+        queue.start();
+        queue.stop();
+
+        assertThat(stored).extracting(Device::getId).containsExactly(lost.id());
+        try (var files = Files.list(walDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void writeAheadLog_concurrentFsyncedAppendsAcrossRotations_areAllKept() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(walDirectory, 4096, true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> appends = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                byte[] record = ("record-" + i).getBytes();
+                appends.add(executor.submit(() -> wal.append(record)));
+            }
+            for (Future<Long> append : appends) {
+                append.get();
+            }
+        }
+        wal.close();
+
+        long records = 0;
+        try (var files = Files.list(walDirectory)) {
+            for (Path file : files.toList()) {
+                records += Files.readAllLines(file).size();
+            }
+        }
+        assertThat(records).isEqualTo(2000);
+    }
+
+    private void recordSaves() {
+        when(repo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Device> devices = inv.getArgument(0);
+            stored.addAll(devices);
+            return devices;
+        });
+    }
+
+    private DeviceIngestQueue queue(int capacity) throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(walDirectory, 1 << 20, false);
+        return new DeviceIngestQueue(wal, repo, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(ApplicationEventPublisher.class), objectMapper, UuidStrategy.TIME_ORDERED, capacity, 100, Duration.ofMillis(10), Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.devices;
+
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.outbox.DeviceOutboxWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DeviceOutboxWriterTest {
+
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    DeviceOutboxWriter writer = new DeviceOutboxWriter(jdbc, new ObjectMapper().findAndRegisterModules());
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsOfATransaction_areInsertedAsOneBatchBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        UUID first = UUID.randomUUID();
+        writer.onDeviceChanged(deleted(first));
+        writer.onDeviceChanged(deleted(UUID.randomUUID()));
+        verifyNoInteractions(jdbc);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).hasSize(2);
+        assertThat(rows.getValue().get(0)[0]).isEqualTo(first.toString());
+        assertThat(rows.getValue().get(0)[1]).isEqualTo("DELETED");
+        // the before-image is only for listeners in this process
+        assertThat((String) rows.getValue().get(0)[2]).doesNotContain("previous");
+        assertThat(TransactionSynchronizationManager.getResource(writer)).isNull();
+    }
+
+    @Test
+    void rolledBackTransaction_writesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        writer.onDeviceChanged(deleted(UUID.randomUUID()));
+
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+    }
+
+    private static DeviceChangedEvent deleted(UUID id) {
+        return DeviceChangedEvent.deleted(id, new DeviceResponse(id, "Router", "Netgear", DeviceState.AVAILABLE, Instant.now(), 0L));
+    }
+}
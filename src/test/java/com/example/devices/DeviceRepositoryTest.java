@@ -1,8 +1,12 @@
 package com.example.devices;
 
+import com.example.devices.domain.BrandMatch;
 import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceSearchRequest;
 import com.example.devices.repository.DeviceRepository;
+import com.example.devices.repository.DeviceSpecifications;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,14 +55,14 @@ class DeviceRepositoryTest {
     }
 
     @Test
-    void findByBrandIgnoreCaseContaining_works() {
-        List<Device> apple = repository.findByBrandIgnoreCaseContaining("apple");
+    void findByBrandKeyContaining_works() {
+        List<DeviceResponse> apple = repository.findByBrandKeyContaining("ppl", DeviceResponse.class);
         assertThat(apple).hasSize(2);
     }
 
     @Test
     void findByBrand_works() {
-        List<Device> apple = repository.findByBrandIgnoreCaseContaining("Apple");
+        List<DeviceResponse> apple = repository.findByBrandKey(Device.normalizeBrand("Apple"), DeviceResponse.class);
         assertThat(apple).hasSize(2);
     }
 
@@ -70,15 +74,24 @@ class DeviceRepositoryTest {
 
     @Test
     void findByState_works() {
-        List<Device> inUse = repository.findByState(DeviceState.IN_USE);
+        List<DeviceResponse> inUse = repository.findByState(DeviceState.IN_USE, DeviceResponse.class);
         assertThat(inUse).hasSize(1);
-        assertThat(inUse.get(0).getName()).isEqualTo("MacBook Pro");
+        assertThat(inUse.get(0).name()).isEqualTo("MacBook Pro");
     }
 
     @Test
     void findByState_AVAILABLE_works() {
-        List<Device> inUse = repository.findByState(DeviceState.AVAILABLE);
+        List<DeviceResponse> inUse = repository.findByState(DeviceState.AVAILABLE, DeviceResponse.class);
         assertThat(inUse).hasSize(1);
-        assertThat(inUse.get(0).getName()).isEqualTo("iPhone 15");
+        assertThat(inUse.get(0).name()).isEqualTo("iPhone 15");
+    }
+
+    @Test
+    void specification_combinesFilters() {
+        DeviceSearchRequest search = new DeviceSearchRequest("APPLE", BrandMatch.EXACT, DeviceState.IN_USE, "Mac",
+                null, null);
+        List<Device> found = repository.findAll(DeviceSpecifications.matching(search));
+        assertThat(found).extracting(Device::getName).containsExactly("MacBook Pro");
+        assertThat(repository.count(DeviceSpecifications.matching(search))).isEqualTo(1);
     }
 }
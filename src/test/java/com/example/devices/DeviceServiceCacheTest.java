@@ -0,0 +1,113 @@
+package com.example.devices;
+
+import com.example.devices.config.CacheConfig;
+import com.example.devices.domain.Device;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceUpdateRequest;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.service.DeviceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({CacheConfig.class, DeviceService.class, LocalValidatorFactoryBean.class})
+class DeviceServiceCacheTest {
+
+    @MockBean
+    DeviceRepository repo;
+
+    @Autowired
+    DeviceService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    UUID id;
+    Device device;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.DEVICES_CACHE).clear();
+        id = UUID.randomUUID();
+        device = Device.builder().id(id).name("iPhone").brand("Apple").state(DeviceState.AVAILABLE).version(0L).build();
+        when(repo.findById(id)).thenAnswer(inv -> Optional.of(Device.builder().id(id).name(device.getName())
+                .brand(device.getBrand()).state(device.getState()).version(device.getVersion()).build()));
+        when(repo.updateGuarded(eq(id), any(), any(), any(), any(), anyBoolean(), any())).thenAnswer(inv -> {
+            device.setName(inv.getArgument(1));
+            device.setVersion(device.getVersion() + 1);
+            return 1;
+        });
+        when(repo.deleteGuarded(id, null)).thenReturn(1);
+    }
+
+    @Test
+    void findById_secondCallIsServedFromCache() {
+        service.findById(id);
+        service.findById(id);
+
+        verify(repo, times(1)).findById(id);
+    }
+
+    @Test
+    void update_evictsCachedDevice() {
+        service.findById(id);
+        service.update(id, new DeviceUpdateRequest("iPhone 16", null, null));
+
+        assertThat(service.findById(id).name()).isEqualTo("iPhone 16");
+        verify(repo, times(3)).findById(id);
+    }
+
+    @Test
+    void deleteAll_evictsOnlyTheDeletedDevices() {
+        UUID otherId = UUID.randomUUID();
+        Device other = Device.builder().id(otherId).name("MBP").brand("Apple").state(DeviceState.AVAILABLE).build();
+        when(repo.findById(otherId)).thenReturn(Optional.of(other));
+        when(repo.findAllByIdForUpdate(anySet())).thenReturn(List.of(device));
+        when(repo.deleteAllGuarded(anyCollection())).thenReturn(1);
+        service.findById(id);
+        service.findById(otherId);
+
+        service.deleteAll(List.of(id));
+
+        Cache cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        assertThat(cache.get(id)).isNull();
+        assertThat(cache.get(otherId)).isNotNull();
+    }
+
+    @Test
+    void put_afterAnEvictionSinceTheMiss_isDropped() {
+        Cache cache = cacheManager.getCache(CacheConfig.DEVICES_CACHE);
+        assertThat(cache.get(id)).isNull();
+        cache.evict(id);
+        cache.put(id, "read before the eviction");
+
+        assertThat(cache.get(id)).isNull();
+        cache.put(id, "read after it");
+        assertThat(cache.get(id).get()).isEqualTo("read after it");
+    }
+
+    @Test
+    void delete_evictsCachedDevice() {
+        service.findById(id);
+        service.delete(id);
+
+        assertThat(cacheManager.getCache(CacheConfig.DEVICES_CACHE).get(id)).isNull();
+    }
+}
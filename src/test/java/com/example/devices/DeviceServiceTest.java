@@ -1,26 +1,44 @@
 package com.example.devices;
 
+import com.example.devices.config.CacheConfig;
+import com.example.devices.domain.BrandMatch;
 import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.BatchItemResult;
+import com.example.devices.dto.DeviceBatchUpdateRequest;
+import com.example.devices.dto.DevicePage;
 import com.example.devices.dto.DeviceRequest;
 import com.example.devices.dto.DeviceResponse;
 import com.example.devices.dto.DeviceUpdateRequest;
+import com.example.devices.event.DeviceChangedEvent;
 import com.example.devices.exception.BadRequestException;
 import com.example.devices.exception.NotFoundException;
+import com.example.devices.exception.PreconditionFailedException;
 import com.example.devices.mapper.DeviceMapper;
 import com.example.devices.repository.DeviceRepository;
+import com.example.devices.service.DeviceCursor;
 import com.example.devices.service.DeviceService;
-import org.assertj.core.api.AssertProvider;
-
+import com.example.devices.snapshot.DeviceSnapshot;
+import com.example.devices.stats.DeviceStatsCounter;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
@@ -31,13 +49,19 @@ class DeviceServiceTest {
     @Mock
     DeviceRepository repo;
 
+    ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.DEVICES_CACHE);
+
     DeviceService service;
 
 
     @BeforeEach
     void setUp() {
         repo = mock(DeviceRepository.class);
-        service = new DeviceService(repo);
+        service = new DeviceService(repo, Validation.buildDefaultValidatorFactory().getValidator(), events, cacheManager,
+                new StaticListableBeanFactory().getBeanProvider(DeviceSnapshot.class),
+                new StaticListableBeanFactory().getBeanProvider(DeviceStatsCounter.class));
 
     }
 
@@ -65,10 +89,38 @@ class DeviceServiceTest {
     }
 
     @Test
-    void findAll_notFound() {
-        when(repo.findAll()).thenReturn(Collections.emptyList()); // ✅ return empty list
+    void findPage_fullPage_returnsCursorOfLastRow() {
+        Device first = Device.builder().id(UUID.randomUUID()).name("A").brand("Apple")
+                .state(DeviceState.AVAILABLE).createdAt(Instant.parse("2024-01-01T00:00:00Z")).build();
+        Device second = Device.builder().id(UUID.randomUUID()).name("B").brand("Apple")
+                .state(DeviceState.AVAILABLE).createdAt(Instant.parse("2024-01-02T00:00:00Z")).build();
+        when(repo.findFirstPage(Limit.of(2))).thenReturn(List.of(first, second));
+
+        DevicePage page = service.findPage(2, null);
+
+        assertThat(page.items()).extracting(DeviceResponse::id).containsExactly(first.getId(), second.getId());
+        assertThat(DeviceCursor.decode(page.nextCursor()))
+                .isEqualTo(new DeviceCursor(second.getCreatedAt(), second.getId()));
+    }
 
-        assertThat((AssertProvider<Boolean>) () -> service.findAll().isEmpty());
+    @Test
+    void findPage_afterCursor_lastPageHasNoCursor() {
+        DeviceCursor cursor = new DeviceCursor(Instant.parse("2024-01-02T00:00:00Z"), UUID.randomUUID());
+        when(repo.findPageAfter(cursor.createdAt(), cursor.id(), Limit.of(10))).thenReturn(List.of());
+
+        DevicePage page = service.findPage(10, cursor.encode());
+
+        assertThat(page.items()).isEmpty();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void findPage_invalidCursorOrLimit_throws() {
+        assertThatThrownBy(() -> service.findPage(10, "not-a-cursor"))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.findPage(DeviceService.MAX_PAGE_SIZE + 1, null))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(repo);
     }
 
 
@@ -84,6 +136,66 @@ class DeviceServiceTest {
                 .hasMessageContaining("Cannot update name or brand");
     }
 
+    @Test
+    void update_staleExpectedVersion_throwsPreconditionFailed() {
+        UUID id = UUID.randomUUID();
+        Device device = Device.builder().id(id).name("MBP").brand("Apple").state(DeviceState.AVAILABLE).version(3L).build();
+        when(repo.findById(id)).thenReturn(Optional.of(device));
+
+        assertThatThrownBy(() -> service.update(id, new DeviceUpdateRequest("New", null, null), 2L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> service.delete(id, 2L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(repo).updateGuarded(id, "New", null, null, null, true, 2L);
+        verify(repo).deleteGuarded(id, 2L);
+    }
+
+    @Test
+    void update_runsGuardedStatementThenReadsResult() {
+        UUID id = UUID.randomUUID();
+        Device updated = Device.builder().id(id).name("MBP").brand("Apple").state(DeviceState.AVAILABLE).version(1L).build();
+        when(repo.updateGuarded(id, null, null, null, DeviceState.AVAILABLE, false, null)).thenReturn(1);
+        when(repo.findById(id)).thenReturn(Optional.of(updated));
+
+        DeviceResponse response = service.update(id, new DeviceUpdateRequest(null, null, DeviceState.AVAILABLE));
+
+        assertThat(response.version()).isEqualTo(1L);
+        verify(repo, times(1)).findById(id);
+    }
+
+    @Test
+    void update_normalizesBrandKeyAndGuardsInUse() {
+        UUID id = UUID.randomUUID();
+        when(repo.updateGuarded(id, null, " Apple ", "apple", null, true, null)).thenReturn(1);
+        when(repo.findById(id)).thenReturn(Optional.of(
+                Device.builder().id(id).name("MBP").brand(" Apple ").state(DeviceState.AVAILABLE).build()));
+
+        service.update(id, new DeviceUpdateRequest(null, " Apple ", null));
+
+        verify(repo).updateGuarded(id, null, " Apple ", "apple", null, true, null);
+    }
+
+    @Test
+    void delete_deletableDevice_isOneStatement() {
+        UUID id = UUID.randomUUID();
+        when(repo.deleteGuarded(id, null)).thenReturn(1);
+
+        service.delete(id);
+
+        verify(repo, never()).findById(any());
+    }
+
+    @Test
+    void delete_matchedNothingButPassesChecks_reportsConcurrentChange() {
+        UUID id = UUID.randomUUID();
+        Device device = Device.builder().id(id).name("Router").brand("Netgear").state(DeviceState.AVAILABLE).version(5L).build();
+        when(repo.findById(id)).thenReturn(Optional.of(device));
+
+        assertThatThrownBy(() -> service.delete(id, 5L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessageContaining("modified concurrently");
+    }
+
     @Test
     void delete_inUse_throws() {
         UUID id = UUID.randomUUID();
@@ -95,93 +207,229 @@ class DeviceServiceTest {
                 .hasMessageContaining("Cannot delete a device that is in use");
     }
 
+    @Test
+    void update_withInMemoryStats_locksTheRowForTheBeforeImage() {
+        service = serviceWithStats();
+        UUID id = UUID.randomUUID();
+        Device device = Device.builder().id(id).name("MBP").brand("Apple").state(DeviceState.IN_USE).version(1L).build();
+        when(repo.findByIdForUpdate(id)).thenReturn(Optional.of(device));
+        when(repo.updateGuarded(id, null, null, null, DeviceState.AVAILABLE, false, null)).thenReturn(1);
+        when(repo.findById(id)).thenReturn(Optional.of(
+                Device.builder().id(id).name("MBP").brand("Apple").state(DeviceState.AVAILABLE).version(2L).build()));
+
+        DeviceResponse response = service.update(id, new DeviceUpdateRequest(null, null, DeviceState.AVAILABLE));
+
+        verify(events).publishEvent(DeviceChangedEvent.updated(response, DeviceMapper.toResponse(device)));
+    }
+
+    @Test
+    void delete_withInMemoryStats_checksTheLockedRowFirst() {
+        service = serviceWithStats();
+        UUID id = UUID.randomUUID();
+        Device device = Device.builder().id(id).name("Router").brand("Netgear").state(DeviceState.AVAILABLE).version(4L).build();
+        when(repo.findByIdForUpdate(id)).thenReturn(Optional.of(device));
+
+        assertThatThrownBy(() -> service.delete(id, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(repo, never()).deleteGuarded(any(), any());
+
+        when(repo.deleteGuarded(id, 4L)).thenReturn(1);
+        service.delete(id, 4L);
+
+        verify(events).publishEvent(DeviceChangedEvent.deleted(id, DeviceMapper.toResponse(device)));
+    }
+
 
 
     @Test
     void findByBrand_found() {
         // Arrange
-        Device entity = Device.builder()
-                .id(UUID.randomUUID())
-                .name("Router")
-                .brand("Netgear")
-                .state(DeviceState.IN_USE)
-                .build();
+        DeviceResponse row = new DeviceResponse(UUID.randomUUID(), "Router", "Netgear",
+                DeviceState.IN_USE, Instant.now(), 0L);
 
-        // Stub the repository to return the entity list
-        when(repo.findByBrandIgnoreCaseContaining(anyString()))
-                .thenReturn(List.of(entity));
+        // Stub the repository to return the projected rows
+        when(repo.findByBrandKeyContaining(anyString(), eq(DeviceResponse.class)))
+                .thenReturn(List.of(row));
 
         // Act
         List<DeviceResponse> result = service.findByBrand("Netgear");
 
         // Assert
-        assertThat(result).hasSize(1);
-        // If DeviceMapper.toResponse sets a dynamic createdAt, ignore it:
-        DeviceResponse expected = DeviceMapper.toResponse(entity);
-        assertThat(result.get(0))
-                .usingRecursiveComparison()
-                .ignoringFields("createdAt")
-                .isEqualTo(expected);
+        assertThat(result).containsExactly(row);
 
         // Verify exact argument actually passed
-        verify(repo).findByBrandIgnoreCaseContaining("Netgear");
+        verify(repo).findByBrandKeyContaining("netgear", DeviceResponse.class);
         verifyNoMoreInteractions(repo);
     }
 
     @Test
     void findByBrand_empty() {
-        when(repo.findByBrandIgnoreCaseContaining(anyString()))
+        when(repo.findByBrandKeyContaining(anyString(), eq(DeviceResponse.class)))
                 .thenReturn(List.of());
 
         List<DeviceResponse> result = service.findByBrand("Unknown");
 
         assertThat(result).isEmpty();
-        verify(repo).findByBrandIgnoreCaseContaining("Unknown");
+        verify(repo).findByBrandKeyContaining("unknown", DeviceResponse.class);
         verifyNoMoreInteractions(repo);
     }
 
+    @Test
+    void findByBrand_exactAndPrefix_useNormalizedKey() {
+        when(repo.findByBrandKey("apple", DeviceResponse.class)).thenReturn(List.of());
+        when(repo.findByBrandKeyStartingWith("app", DeviceResponse.class)).thenReturn(List.of());
+
+        service.findByBrand(" Apple ", BrandMatch.EXACT);
+        service.findByBrand("APP", BrandMatch.PREFIX);
+
+        verify(repo).findByBrandKey("apple", DeviceResponse.class);
+        verify(repo).findByBrandKeyStartingWith("app", DeviceResponse.class);
+        verifyNoMoreInteractions(repo);
+    }
+
+    @Test
+    void findByStateAndBrand_useTheSnapshotOnceLoaded() {
+        DeviceSnapshot snapshot = mock(DeviceSnapshot.class);
+        DeviceResponse row = new DeviceResponse(UUID.randomUUID(), "MBP", "Apple", DeviceState.IN_USE, Instant.now(), 0L);
+        when(snapshot.isLoaded()).thenReturn(true);
+        when(snapshot.findByState(DeviceState.IN_USE)).thenReturn(List.of(row));
+        when(snapshot.findByBrand("app", BrandMatch.PREFIX)).thenReturn(List.of(row));
+        service = new DeviceService(repo, Validation.buildDefaultValidatorFactory().getValidator(), events, cacheManager,
+                new StaticListableBeanFactory(Map.of("deviceSnapshot", snapshot)).getBeanProvider(DeviceSnapshot.class),
+                new StaticListableBeanFactory().getBeanProvider(DeviceStatsCounter.class));
+
+        assertThat(service.findByState(DeviceState.IN_USE)).containsExactly(row);
+        assertThat(service.findByBrand(" App", BrandMatch.PREFIX)).containsExactly(row);
+        verifyNoInteractions(repo);
+    }
 
     @Test
     void findByState_found() {
         // Arrange
-        Device entity = Device.builder()
-                .id(UUID.randomUUID())
-                .name("Router")
-                .brand("Netgear")
-                .state(DeviceState.IN_USE)
-                .build();
+        DeviceResponse row = new DeviceResponse(UUID.randomUUID(), "Router", "Netgear",
+                DeviceState.IN_USE, Instant.now(), 0L);
 
-        // Stub the repository to return the entity list
-        when(repo.findByState(DeviceState.IN_USE))
-                .thenReturn(List.of(entity));
+        // Stub the repository to return the projected rows
+        when(repo.findByState(DeviceState.IN_USE, DeviceResponse.class))
+                .thenReturn(List.of(row));
 
         // Act
         List<DeviceResponse> result = service.findByState(DeviceState.IN_USE);
 
         // Assert
-        assertThat(result).hasSize(1);
-        // If DeviceMapper.toResponse sets a dynamic createdAt, ignore it:
-        DeviceResponse expected = DeviceMapper.toResponse(entity);
-        assertThat(result.get(0))
-                .usingRecursiveComparison()
-                .ignoringFields("createdAt")
-                .isEqualTo(expected);
+        assertThat(result).containsExactly(row);
 
         // Verify exact argument actually passed
-        verify(repo).findByState(DeviceState.IN_USE);
+        verify(repo).findByState(DeviceState.IN_USE, DeviceResponse.class);
         verifyNoMoreInteractions(repo);
     }
 
     @Test
     void findByState_empty() {
-        when(repo.findByState(any()))
+        when(repo.findByState(any(), eq(DeviceResponse.class)))
                 .thenReturn(List.of());
 
         List<DeviceResponse> result = service.findByState(DeviceState.AVAILABLE);
 
         assertThat(result).isEmpty();
-        verify(repo).findByState(DeviceState.AVAILABLE);
+        verify(repo).findByState(DeviceState.AVAILABLE, DeviceResponse.class);
         verifyNoMoreInteractions(repo);
     }
 
+    @Test
+    void createAll_savesValidItemsAndReportsInvalidOnes() {
+        when(repo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Device> devices = inv.getArgument(0);
+            devices.forEach(d -> d.setId(UUID.randomUUID()));
+            return devices;
+        });
+
+        List<BatchItemResult> results = service.createAll(Arrays.asList(
+                new DeviceRequest("iPhone 15", "Apple", DeviceState.AVAILABLE),
+                new DeviceRequest("", "Apple", null),
+                null
+        ));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(201, 400, 400);
+        assertThat(results.get(0).device().name()).isEqualTo("iPhone 15");
+        assertThat(results.get(1).error()).contains("name:").contains("state:");
+        verify(repo).saveAll(argThat(devices -> ((List<Device>) devices).size() == 1));
+    }
+
+    @Test
+    void updateAll_reportsInUseAndMissingDevicesPerItem() {
+        Device available = Device.builder().id(UUID.randomUUID()).name("iPhone").brand("Apple").state(DeviceState.AVAILABLE).build();
+        Device inUse = Device.builder().id(UUID.randomUUID()).name("MBP").brand("Apple").state(DeviceState.IN_USE).build();
+        UUID missing = UUID.randomUUID();
+        when(repo.findAllById(anySet())).thenReturn(List.of(available, inUse));
+
+        List<BatchItemResult> results = service.updateAll(List.of(
+                new DeviceBatchUpdateRequest(available.getId(), "iPhone 16", null, null),
+                new DeviceBatchUpdateRequest(inUse.getId(), "MBP 2", null, null),
+                new DeviceBatchUpdateRequest(missing, null, null, DeviceState.INACTIVE)
+        ));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(200, 400, 404);
+        assertThat(results.get(1).error()).contains("Cannot update name or brand");
+        assertThat(available.getName()).isEqualTo("iPhone 16");
+        assertThat(inUse.getName()).isEqualTo("MBP");
+    }
+
+    @Test
+    void deleteAll_deletesOnlyDeletableDevicesInOneStatement() {
+        Device available = Device.builder().id(UUID.randomUUID()).name("iPhone").brand("Apple").state(DeviceState.AVAILABLE).build();
+        Device inUse = Device.builder().id(UUID.randomUUID()).name("MBP").brand("Apple").state(DeviceState.IN_USE).build();
+        when(repo.findAllByIdForUpdate(anySet())).thenReturn(List.of(available, inUse));
+        when(repo.deleteAllGuarded(anyCollection())).thenReturn(1);
+
+        List<BatchItemResult> results = service.deleteAll(List.of(available.getId(), inUse.getId()));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(204, 400);
+        verify(repo).deleteAllGuarded(Set.of(available.getId()));
+    }
+
+    @Test
+    void deleteAll_reportsDevicesTheGuardedDeleteSkipped() {
+        Device available = Device.builder().id(UUID.randomUUID()).name("iPhone").brand("Apple").state(DeviceState.AVAILABLE).build();
+        Device takenMeanwhile = Device.builder().id(UUID.randomUUID()).name("MBP").brand("Apple").state(DeviceState.AVAILABLE).build();
+        Device nowInUse = Device.builder().id(takenMeanwhile.getId()).name("MBP").brand("Apple").state(DeviceState.IN_USE).build();
+        when(repo.findAllByIdForUpdate(anySet())).thenReturn(List.of(available, takenMeanwhile));
+        when(repo.findAllById(anySet())).thenReturn(List.of(nowInUse));
+        when(repo.deleteAllGuarded(anyCollection())).thenReturn(1);
+
+        List<BatchItemResult> results = service.deleteAll(List.of(available.getId(), takenMeanwhile.getId()));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(204, 400);
+        assertThat(results.get(1).error()).contains("in use");
+        verify(events).publishEvent(DeviceChangedEvent.deleted(available.getId(), DeviceMapper.toResponse(available)));
+        verifyNoMoreInteractions(events);
+    }
+
+    @Test
+    void updateAll_deviceChangedSinceLoad_failsTheBatchWith412() {
+        Device available = Device.builder().id(UUID.randomUUID()).name("iPhone").brand("Apple").state(DeviceState.AVAILABLE).version(0L).build();
+        when(repo.findAllById(anySet())).thenReturn(List.of(available));
+        when(repo.saveAllAndFlush(anyCollection()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Device.class, available.getId()));
+
+        assertThatThrownBy(() -> service.updateAll(List.of(
+                new DeviceBatchUpdateRequest(available.getId(), "iPhone 16", null, null))))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessageContaining(available.getId().toString());
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void batch_emptyOrOversized_throws() {
+        assertThatThrownBy(() -> service.createAll(List.of())).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.deleteAll(Collections.nCopies(DeviceService.MAX_BATCH_SIZE + 1, UUID.randomUUID())))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private DeviceService serviceWithStats() {
+        return new DeviceService(repo, Validation.buildDefaultValidatorFactory().getValidator(), events, cacheManager,
+                new StaticListableBeanFactory().getBeanProvider(DeviceSnapshot.class),
+                new StaticListableBeanFactory(Map.of("deviceStatsCounter", mock(DeviceStatsCounter.class)))
+                        .getBeanProvider(DeviceStatsCounter.class));
+    }
 }
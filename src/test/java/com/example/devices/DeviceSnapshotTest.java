@@ -0,0 +1,87 @@
+package com.example.devices;
+
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.snapshot.DeviceSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DeviceSnapshotTest {
+
+    static final Instant T0 = Instant.parse("2025-08-16T10:00:00Z");
+
+    DeviceRepository repo = mock(DeviceRepository.class);
+    DeviceSnapshot snapshot = new DeviceSnapshot(repo, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+    DeviceResponse iphone = device("iPhone 15", "Apple", DeviceState.AVAILABLE, 0);
+    DeviceResponse macbook = device("MacBook Pro", " APPLE ", DeviceState.IN_USE, 1);
+    DeviceResponse thinkpad = device("ThinkPad", "Lenovo", DeviceState.AVAILABLE, 2);
+
+    @Test
+    void rebuild_indexesByStateAndBrand() {
+        when(repo.streamAll()).thenReturn(Stream.of(thinkpad, iphone, macbook));
+
+        snapshot.rebuild();
+
+        assertThat(snapshot.isLoaded()).isTrue();
+        assertThat(snapshot.findByState(DeviceState.AVAILABLE)).containsExactly(iphone, thinkpad);
+        assertThat(snapshot.findByState(DeviceState.INACTIVE)).isEmpty();
+        assertThat(snapshot.findByBrand("apple", BrandMatch.EXACT)).containsExactly(iphone, macbook);
+        assertThat(snapshot.findByBrand("le", BrandMatch.PREFIX)).containsExactly(thinkpad);
+        assertThat(snapshot.findByBrand("ppl", BrandMatch.CONTAINS)).containsExactly(iphone, macbook);
+        assertThat(snapshot.findByBrand("e", BrandMatch.CONTAINS)).containsExactly(iphone, macbook, thinkpad);
+        assertThat(snapshot.findByBrand("pplx", BrandMatch.CONTAINS)).isEmpty();
+    }
+
+    @Test
+    void committedChanges_areApplied_butNeverRollADeviceBack() {
+        when(repo.streamAll()).thenReturn(Stream.of(iphone, macbook));
+        snapshot.rebuild();
+        DeviceResponse retired = new DeviceResponse(iphone.id(), iphone.name(), "Lenovo", DeviceState.INACTIVE, iphone.createdAt(), 1L);
+
+        snapshot.onDeviceChanged(DeviceChangedEvent.updated(retired, iphone));
+        snapshot.onDeviceChanged(DeviceChangedEvent.updated(iphone, iphone));
+        snapshot.onDeviceChanged(DeviceChangedEvent.created(thinkpad));
+        snapshot.onDeviceChanged(DeviceChangedEvent.deleted(macbook.id(), macbook));
+        snapshot.onDeviceChanged(DeviceChangedEvent.updated(macbook, macbook));
+
+        assertThat(snapshot.findByState(DeviceState.INACTIVE)).containsExactly(retired);
+        assertThat(snapshot.findByState(DeviceState.IN_USE)).isEmpty();
+        assertThat(snapshot.findByBrand("apple", BrandMatch.EXACT)).isEmpty();
+        assertThat(snapshot.findByBrand("lenovo", BrandMatch.EXACT)).containsExactly(retired, thinkpad);
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    void changesCommittedDuringRebuild_areReplayedOntoTheNewSnapshot() {
+        when(repo.streamAll()).thenAnswer(inv -> {
+            // committed after the cursor has passed the row
+            snapshot.onDeviceChanged(DeviceChangedEvent.created(thinkpad));
+            snapshot.onDeviceChanged(DeviceChangedEvent.deleted(iphone.id(), iphone));
+            return Stream.of(iphone, macbook);
+        });
+        when(repo.count()).thenReturn(2L);
+
+        snapshot.rebuild();
+        snapshot.verify();
+
+        assertThat(snapshot.findByBrand("", BrandMatch.CONTAINS)).containsExactly(macbook, thinkpad);
+        assertThat(snapshot.getDrift()).isZero();
+    }
+
+    private static DeviceResponse device(String name, String brand, DeviceState state, int minutes) {
+        return new DeviceResponse(UUID.randomUUID(), name, brand, state, T0.plusSeconds(60L * minutes), 0L);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.devices;
+
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.dto.DeviceStats;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.repository.DeviceRepository;
+import com.example.devices.stats.DeviceStatsCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DeviceStatsCounterTest {
+
+    static final Instant DAY = Instant.parse("2025-08-16T10:00:00Z");
+
+    DeviceRepository repo = mock(DeviceRepository.class);
+    DeviceStatsCounter counter = new DeviceStatsCounter(repo, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+    @BeforeEach
+    void setUp() {
+        when(repo.countByState()).thenReturn(List.of(new DeviceStats.StateCount(DeviceState.AVAILABLE, 2)));
+        when(repo.countByBrand(any())).thenReturn(List.of(new DeviceStats.BrandCount("Apple", 2)));
+        when(repo.countByDay(null)).thenReturn(List.of(new DeviceStats.BucketCount(Instant.parse("2025-08-16T00:00:00Z"), 2)));
+    }
+
+    @Test
+    void create_isCountedWithoutQuerying() {
+        counter.recount();
+        clearInvocations(repo);
+
+        counter.onDeviceChanged(DeviceChangedEvent.created(device("apple", DeviceState.IN_USE)));
+        counter.onDeviceChanged(DeviceChangedEvent.created(device("Lenovo", DeviceState.AVAILABLE)));
+
+        DeviceStats stats = counter.snapshot(1, LocalDate.of(2025, 8, 1));
+        assertThat(stats.total()).isEqualTo(4);
+        assertThat(stats.byState()).containsEntry(DeviceState.AVAILABLE, 3L)
+                .containsEntry(DeviceState.IN_USE, 1L)
+                .containsEntry(DeviceState.INACTIVE, 0L);
+        assertThat(stats.topBrands()).containsExactly(new DeviceStats.BrandCount("Apple", 3));
+        assertThat(stats.createdPerDay()).containsExactly(new DeviceStats.DayCount(LocalDate.of(2025, 8, 16), 4));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void updateAndDelete_applyExactDeltasWithoutQuerying() {
+        counter.recount();
+        clearInvocations(repo);
+        DeviceResponse ipad = device("Apple", DeviceState.AVAILABLE);
+        DeviceResponse retired = new DeviceResponse(ipad.id(), ipad.name(), "Lenovo", DeviceState.INACTIVE, DAY, 1L);
+
+        counter.onDeviceChanged(DeviceChangedEvent.updated(retired, ipad));
+        DeviceResponse phone = device("apple", DeviceState.AVAILABLE);
+        counter.onDeviceChanged(DeviceChangedEvent.deleted(phone.id(), phone));
+
+        DeviceStats stats = counter.snapshot(5, LocalDate.of(2025, 8, 1));
+        assertThat(stats.total()).isEqualTo(1);
+        assertThat(stats.byState()).containsEntry(DeviceState.AVAILABLE, 0L)
+                .containsEntry(DeviceState.INACTIVE, 1L);
+        assertThat(stats.topBrands()).containsExactly(new DeviceStats.BrandCount("Lenovo", 1));
+        assertThat(stats.createdPerDay()).containsExactly(new DeviceStats.DayCount(LocalDate.of(2025, 8, 16), 1));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void topBrands_afterAChange_areSortedAgain() {
+        counter.recount();
+        assertThat(counter.snapshot(1, LocalDate.of(2025, 8, 1)).topBrands())
+                .containsExactly(new DeviceStats.BrandCount("Apple", 2));
+
+        for (int i = 0; i < 3; i++) {
+            counter.onDeviceChanged(DeviceChangedEvent.created(device("Lenovo", DeviceState.AVAILABLE)));
+        }
+
+        assertThat(counter.snapshot(1, LocalDate.of(2025, 8, 1)).topBrands())
+                .containsExactly(new DeviceStats.BrandCount("Lenovo", 3));
+    }
+
+    @Test
+    void recountRacingWithAChange_isDiscarded() {
+        counter.recount();
+        when(repo.countByState()).thenAnswer(inv -> {
+            counter.onDeviceChanged(DeviceChangedEvent.created(device("Apple", DeviceState.IN_USE)));
+            return List.of(new DeviceStats.StateCount(DeviceState.AVAILABLE, 2));
+        });
+
+        counter.recount();
+
+        assertThat(counter.snapshot(5, LocalDate.of(2025, 8, 1)).byState()).containsEntry(DeviceState.IN_USE, 1L);
+    }
+
+    private static DeviceResponse device(String brand, DeviceState state) {
+        return new DeviceResponse(UUID.randomUUID(), "d", brand, state, DAY, 0L);
+    }
+}
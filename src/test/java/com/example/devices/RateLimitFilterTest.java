@@ -0,0 +1,98 @@
+package com.example.devices;
+
+import com.example.devices.config.RateLimitProperties;
+import com.example.devices.ratelimit.RateLimitFilter;
+import com.example.devices.ratelimit.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    AtomicInteger pending = new AtomicInteger();
+    // refills far slower than the test runs: only the burst is available
+    RateLimitFilter filter = new RateLimitFilter(
+            new RateLimitProperties(true, "X-API-Key", 0.01, 3, 0.01, 1, 1000, 2, 5, Duration.ZERO),
+            pending::get, new ObjectMapper().findAndRegisterModules(), registry);
+
+    @Test
+    void tokenBucket_allowsTheBurstThenRefillsAtTheRate() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100))).isZero();
+    }
+
+    @Test
+    void perClientBudgets_cheapAndExpensiveAreSeparate() throws Exception {
+        assertThat(send("GET", "/api/devices", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        MockHttpServletResponse refused = send("GET", "/api/devices/search", "10.0.0.1", null);
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("100");
+        assertThat(refused.getContentAsString()).contains("\"status\":429");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("GET", "/api/devices/" + i, "10.0.0.1", null).getStatus()).isEqualTo(200);
+        }
+        assertThat(send("PUT", "/api/devices/1", "10.0.0.1", null).getStatus()).isEqualTo(429);
+
+        // another address, and an API key from the same address, have budgets of their own
+        assertThat(send("GET", "/api/devices", "10.0.0.2", null).getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/devices", "10.0.0.1", "key-1").getStatus()).isEqualTo(200);
+
+        assertThat(registry.counter("devices.ratelimit.rejected", "reason", "rate_limit", "cost", "expensive").count()).isEqualTo(1);
+        assertThat(registry.counter("devices.ratelimit.rejected", "reason", "rate_limit", "cost", "cheap").count()).isEqualTo(1);
+    }
+
+    @Test
+    void freshKeysFromOneAddress_shareItsBudgetBeyondTheCap() throws Exception {
+        assertThat(send("GET", "/api/devices", "10.0.0.4", "key-1").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/devices", "10.0.0.4", "key-2").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/devices", "10.0.0.4", "key-3").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/devices", "10.0.0.4", "key-4").getStatus()).isEqualTo(429);
+        assertThat(send("GET", "/api/devices", "10.0.0.4", null).getStatus()).isEqualTo(429);
+
+        // the same key from another address is another client
+        assertThat(send("GET", "/api/devices", "10.0.0.5", "key-1").getStatus()).isEqualTo(200);
+        assertThat(filter.getClientCount()).isEqualTo(4);
+    }
+
+    @Test
+    void waitingForConnections_shedsExpensiveRequestsOnly() throws Exception {
+        pending.set(6);
+
+        MockHttpServletResponse shed = send("GET", "/api/devices/brand/apple", "10.0.0.3", null);
+        assertThat(shed.getStatus()).isEqualTo(429);
+        assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(send("GET", "/api/devices/42", "10.0.0.3", null).getStatus()).isEqualTo(200);
+
+        pending.set(0);
+        assertThat(send("GET", "/api/devices/brand/apple", "10.0.0.3", null).getStatus()).isEqualTo(200);
+        assertThat(registry.counter("devices.ratelimit.rejected", "reason", "overload", "cost", "expensive").count()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String address, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.devices;
+
+import com.example.devices.datasource.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = mock(DataSource.class);
+    DataSource replica0 = mock(DataSource.class);
+    DataSource replica1 = mock(DataSource.class);
+    ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        for (DataSource ds : new DataSource[]{primary, replica0, replica1}) {
+            when(ds.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        }
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        dataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5));
+        // the proxy reads auto-commit/isolation defaults from the primary once, on first use
+        dataSource.getConnection().close();
+        clearInvocations(primary);
+    }
+
+    @Test
+    void readOnly_roundRobinsOverReplicasWithinLag() throws SQLException {
+        dataSource.recordLag("replica-0", Duration.ofSeconds(1));
+        dataSource.recordLag("replica-1", Duration.ZERO);
+
+        useReadOnlyConnection();
+        useReadOnlyConnection();
+
+        verify(replica0).getConnection();
+        verify(replica1).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void readOnly_fallsBackToPrimaryWhenReplicasLagOrAreUnknown() throws SQLException {
+        dataSource.recordLag("replica-0", Duration.ofSeconds(30));
+
+        useReadOnlyConnection();
+
+        verify(primary).getConnection();
+        verify(replica0, never()).getConnection();
+        verify(replica1, never()).getConnection();
+    }
+
+    @Test
+    void readWrite_alwaysUsesPrimary() throws SQLException {
+        dataSource.recordLag("replica-0", Duration.ZERO);
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+
+        verify(primary).getConnection();
+        verify(replica0, never()).getConnection();
+    }
+
+    private void useReadOnlyConnection() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+    }
+}
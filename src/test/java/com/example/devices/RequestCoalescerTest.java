@@ -0,0 +1,142 @@
+package com.example.devices;
+
+import com.example.devices.coalesce.Coalesced;
+import com.example.devices.coalesce.RequestCoalescer;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.exception.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RequestCoalescer coalescer = new RequestCoalescer(
+            new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class));
+    Lookups target = new Lookups();
+    Lookups lookups = proxy(target);
+
+    @Test
+    void concurrentEqualCalls_shareOneInvocation() throws Exception {
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> lookups.find("AVAILABLE"));
+        assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(() -> lookups.find("AVAILABLE"));
+        CompletableFuture<List<String>> other = CompletableFuture.supplyAsync(() -> lookups.find("IN_USE"));
+        awaitCoalesced(1);
+        target.release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(other.get(5, TimeUnit.SECONDS)).containsExactly("IN_USE");
+        assertThat(target.calls.get()).isEqualTo(2);
+
+        // once the shared call has returned, the next one queries again
+        lookups.find("AVAILABLE");
+        assertThat(target.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void waitingCalls_getTheSameException() throws Exception {
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> lookups.find("missing"));
+        assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(() -> lookups.find("missing"));
+        awaitCoalesced(1);
+        target.release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(NotFoundException.class);
+        assertThat(target.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void callsAfterACommittedChange_doNotJoinEarlierCalls() throws Exception {
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> lookups.find("AVAILABLE"));
+        assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+        coalescer.onDeviceChanged(DeviceChangedEvent.created(
+                new DeviceResponse(UUID.randomUUID(), "d", "Apple", DeviceState.AVAILABLE, Instant.now(), 0L)));
+        CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(() -> lookups.find("AVAILABLE"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (target.calls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        target.release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(target.calls.get()).isEqualTo(2);
+        assertThat(registry.find("devices.coalesced").counter()).isNull();
+    }
+
+    @Test
+    void uncoalescedCalls_runOnTheirOwn() throws Exception {
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> lookups.find("AVAILABLE"));
+        assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(
+                () -> RequestCoalescer.uncoalesced(() -> lookups.find("AVAILABLE")));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (target.calls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        target.release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(target.calls.get()).isEqualTo(2);
+        assertThat(registry.find("devices.coalesced").counter()).isNull();
+    }
+
+    private void awaitCoalesced(int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.counter("devices.coalesced", "method", "Lookups.find").count() < calls && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(registry.counter("devices.coalesced", "method", "Lookups.find").count()).isEqualTo(calls);
+    }
+
+    private Lookups proxy(Lookups target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(Coalesced.class), coalescer));
+        return (Lookups) factory.getProxy();
+    }
+
+    static class Lookups {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced
+        public List<String> find(String state) {
+            calls.incrementAndGet();
+            if (state.equals("IN_USE")) {
+                return List.of(state);
+            }
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (state.equals("missing")) {
+                throw new NotFoundException("No devices in state " + state);
+            }
+            return List.of(state);
+        }
+    }
+}
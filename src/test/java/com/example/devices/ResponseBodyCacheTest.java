@@ -0,0 +1,122 @@
+package com.example.devices;
+
+import com.example.devices.config.ResponseBodyCacheConfig;
+import com.example.devices.domain.BrandMatch;
+import com.example.devices.domain.DeviceState;
+import com.example.devices.dto.DeviceResponse;
+import com.example.devices.event.DeviceChangeFeed;
+import com.example.devices.event.DeviceChangedEvent;
+import com.example.devices.responsecache.ResponseBodyCache;
+import com.example.devices.service.DeviceSearchService;
+import com.example.devices.service.DeviceService;
+import com.example.devices.service.DeviceStatsService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = com.example.devices.controller.DeviceController.class,
+        properties = {"devices.response-cache.enabled=true", "devices.response-cache.gzip-min-size=0"})
+@Import({ResponseBodyCacheConfig.class, SimpleMeterRegistry.class})
+class ResponseBodyCacheTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ResponseBodyCache cache;
+
+    @MockBean
+    DeviceService service;
+
+    @MockBean
+    DeviceStatsService statsService;
+
+    @MockBean
+    DeviceChangeFeed changeFeed;
+
+    @MockBean
+    DeviceSearchService searchService;
+
+    DeviceResponse device = new DeviceResponse(UUID.randomUUID(), "MBP", "Apple",
+            DeviceState.AVAILABLE, Instant.parse("2025-08-16T12:00:00Z"), 0L);
+
+    @Test
+    void repeatedQuery_isServedFromCacheUntilAChangeIsCommitted() throws Exception {
+        Mockito.when(service.findByState(DeviceState.AVAILABLE)).thenReturn(List.of(device));
+
+        String etag = mvc.perform(get("/api/devices/state/{state}", "AVAILABLE"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(device.id().toString()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(get("/api/devices/state/{state}", "AVAILABLE"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mvc.perform(get("/api/devices/state/{state}", "AVAILABLE").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        Mockito.verify(service, Mockito.times(1)).findByState(DeviceState.AVAILABLE);
+
+        cache.onDeviceChanged(DeviceChangedEvent.created(device));
+        // queried again, but the content and so the ETag are unchanged
+        mvc.perform(get("/api/devices/state/{state}", "AVAILABLE").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        Mockito.verify(service, Mockito.times(2)).findByState(DeviceState.AVAILABLE);
+    }
+
+    @Test
+    void gzipAndCbor_areCachedSeparately() throws Exception {
+        // large enough for gzip to pay off
+        List<DeviceResponse> devices = IntStream.range(0, 50).mapToObj(i -> device).toList();
+        Mockito.when(service.findByBrand("Apple", BrandMatch.EXACT)).thenReturn(devices);
+
+        byte[] gzipped = mvc.perform(get("/api/devices/brand/{brand}", "Apple")
+                        .param("match", "EXACT")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, org.hamcrest.Matchers.endsWith("-gzip\"")))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode json = new ObjectMapper().readTree(new GZIPInputStream(new ByteArrayInputStream(gzipped)));
+        assertThat(json.get(0).get("brand").textValue()).isEqualTo("Apple");
+
+        byte[] cbor = mvc.perform(get("/api/devices/brand/{brand}", "Apple")
+                        .param("match", "EXACT")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor).get(0).get("name").textValue()).isEqualTo("MBP");
+        Mockito.verify(service, Mockito.times(2)).findByBrand("Apple", BrandMatch.EXACT);
+    }
+
+    @Test
+    void acceptsGzip_honoursQualityZero() {
+        assertThat(ResponseBodyCache.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(ResponseBodyCache.acceptsGzip("*")).isTrue();
+        assertThat(ResponseBodyCache.acceptsGzip("gzip;q=0, deflate")).isFalse();
+        assertThat(ResponseBodyCache.acceptsGzip("deflate")).isFalse();
+        assertThat(ResponseBodyCache.acceptsGzip(null)).isFalse();
+    }
+}
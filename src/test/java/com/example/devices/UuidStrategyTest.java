@@ -0,0 +1,39 @@
+package com.example.devices;
+
+import com.example.devices.domain.UuidStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidStrategyTest {
+
+    @Test
+    void timeOrdered_isVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidStrategy.TIME_ORDERED.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void timeOrdered_increasesEvenWithinOneMillisecond() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            ids.add(UuidStrategy.TIME_ORDERED.next());
+        }
+
+        // byte order, as the databases compare uuid / binary(16) keys
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = ids.get(i - 1);
+            UUID current = ids.get(i);
+            assertThat(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .isPositive();
+        }
+    }
+}
@@ -2,27 +2,37 @@ package com.example.devices.it;
 
 import com.example.devices.domain.Device;
 import com.example.devices.domain.DeviceState;
+import com.example.devices.domain.UuidStrategy;
+import com.example.devices.dto.DeviceResponse;
 import com.example.devices.repository.DeviceRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
-import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * Shared JPA test logic. Subclasses only provide the vendor-specific container + properties.
+ * The schema is built by the vendor's Flyway migrations, so these tests also prove the migrations
+ * match the entity mapping.
  */
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
-@ImportAutoConfiguration(exclude = FlywayAutoConfiguration.class)
+// batched inserts, as the application runs them
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=100")
 public abstract class AbstractDeviceRepositoryIT {
 
+    private static final int INSERT_BATCH = 500;
+
     @Autowired
     protected DeviceRepository repository;
 
@@ -35,17 +45,50 @@ public abstract class AbstractDeviceRepositoryIT {
     }
 
     @Test
-    void findByBrandIgnoreCaseContaining_works() {
-        List<Device> apple = repository.findByBrandIgnoreCaseContaining("apple");
-        assertThat(apple).hasSize(2);
-        assertThat(apple).extracting(Device::getName)
+    void findByBrandKey_matchesNormalizedBrand() {
+        assertThat(repository.findByBrandKey("apple", DeviceResponse.class))
+                .extracting(DeviceResponse::name)
                 .containsExactlyInAnyOrder("iPhone 15", "MacBook Pro");
+        assertThat(repository.findByBrandKeyStartingWith("len", DeviceResponse.class))
+                .extracting(DeviceResponse::name)
+                .containsExactly("ThinkPad");
+        assertThat(repository.findByBrandKeyContaining("ppl", DeviceResponse.class)).hasSize(2);
     }
 
     @Test
     void findByState_works() {
-        List<Device> inUse = repository.findByState(DeviceState.IN_USE);
+        List<DeviceResponse> inUse = repository.findByState(DeviceState.IN_USE, DeviceResponse.class);
         assertThat(inUse).hasSize(1);
-        assertThat(inUse.get(0).getName()).isEqualTo("MacBook Pro");
+        assertThat(inUse.get(0).name()).isEqualTo("MacBook Pro");
+    }
+
+    /**
+     * Insert throughput with random vs. time-ordered ids; off unless a row count is given:
+     * {@code mvn test -Dtest='DeviceRepository*IT' -Dids.benchmark.rows=500000}.
+     * Each strategy fills an empty table in committed batches. The gap grows once the primary key
+     * index no longer fits in the buffer cache.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "ids.benchmark.rows", matches = "\\d+")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void insertThroughput_randomVsTimeOrderedIds() {
+        int rows = Integer.getInteger("ids.benchmark.rows");
+        for (UuidStrategy strategy : UuidStrategy.values()) {
+            repository.deleteAllInBatch();
+            long start = System.nanoTime();
+            for (int done = 0; done < rows; done += INSERT_BATCH) {
+                List<Device> batch = new ArrayList<>(INSERT_BATCH);
+                for (int i = done; i < Math.min(rows, done + INSERT_BATCH); i++) {
+                    // assigned ids are kept by the generator, so both strategies run in one context
+                    batch.add(Device.builder().id(strategy.next()).name("device " + i).brand("Brand " + i % 50)
+                            .state(DeviceState.AVAILABLE).build());
+                }
+                repository.saveAll(batch);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s %s ids: %d rows in %.1f s, %.0f rows/s%n",
+                    getClass().getSimpleName(), strategy, rows, seconds, rows / seconds);
+        }
+        repository.deleteAllInBatch();
     }
 }
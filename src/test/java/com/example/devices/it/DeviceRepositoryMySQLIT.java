@@ -21,9 +21,10 @@ class DeviceRepositoryMySQLIT extends AbstractDeviceRepositoryIT {
         r.add("spring.datasource.username", mysql::getUsername);
         r.add("spring.datasource.password", mysql::getPassword);
 
-        // Hibernate manages schema for tests (no Flyway)
-        r.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        // Schema comes from the Flyway migrations; Hibernate validates the mapping against it
+        r.add("spring.flyway.enabled", () -> "true");
+        r.add("spring.flyway.locations", () -> "classpath:db/migration/{vendor}");
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
         r.add("spring.jpa.show-sql", () -> "false");
-        r.add("spring.flyway.enabled", () -> "false");
     }
 }
@@ -24,9 +24,10 @@ class DeviceRepositoryPostgresIT extends AbstractDeviceRepositoryIT {
         r.add("spring.datasource.username", postgres::getUsername);
         r.add("spring.datasource.password", postgres::getPassword);
 
-        // Hibernate manages schema for tests (no Flyway)
-        r.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        // Schema comes from the Flyway migrations; Hibernate validates the mapping against it
+        r.add("spring.flyway.enabled", () -> "true");
+        r.add("spring.flyway.locations", () -> "classpath:db/migration/{vendor}");
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
         r.add("spring.jpa.show-sql", () -> "false");
-        r.add("spring.flyway.enabled", () -> "false");
     }
 }